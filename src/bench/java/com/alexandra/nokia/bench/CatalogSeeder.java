@@ -0,0 +1,74 @@
+package com.alexandra.nokia.bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+
+/**
+ * Fills an empty schema with a synthetic catalog straight through batched inserts
+ * (much faster than going through MovieService for millions of rows).
+ * Ids are assigned by the database in insert order, starting at 1.
+ */
+public class CatalogSeeder {
+    static final String[] WORDS = {
+            "Star", "Wars", "Die", "Hard", "Night", "Return", "Empire", "Dark", "Lost", "City",
+            "Blue", "River", "Last", "King", "Ghost", "Storm", "Silent", "Game", "Iron", "Dream"
+    };
+    private static final String[] NATIONALITIES = {"American", "British", "Irish", "French", "German", "Japanese"};
+    private static final int BATCH = 5_000;
+
+    public static int peopleFor(int movies, int castSize) {
+        return Math.max(castSize * 10, movies / 2);
+    }
+
+    public static String personName(int i) {
+        return "Person " + i;
+    }
+
+    public static void seed(Connection conn, int movies, int castSize, long randomSeed) throws SQLException {
+        Random rnd = new Random(randomSeed);
+        int people = peopleFor(movies, castSize);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO people(name, nationality) VALUES (?, ?)")) {
+            for (int i = 1; i <= people; i++) {
+                ps.setString(1, personName(i));
+                ps.setString(2, NATIONALITIES[rnd.nextInt(NATIONALITIES.length)]);
+                ps.addBatch();
+                if (i % BATCH == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO movies(title, length_seconds, director_id) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= movies; i++) {
+                ps.setString(1, WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)] + " " + i);
+                ps.setInt(2, 3600 + rnd.nextInt(7200));
+                ps.setLong(3, 1 + rnd.nextInt(people));
+                ps.addBatch();
+                if (i % BATCH == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "MERGE INTO movie_actors(movie_id, actor_id) KEY(movie_id, actor_id) VALUES (?, ?)")) {
+            int pending = 0;
+            for (int m = 1; m <= movies; m++) {
+                for (int c = 0; c < castSize; c++) {
+                    ps.setLong(1, m);
+                    ps.setLong(2, 1 + rnd.nextInt(people));
+                    ps.addBatch();
+                    if (++pending % BATCH == 0) ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+
+        conn.commit();
+        conn.setAutoCommit(autoCommit);
+    }
+}
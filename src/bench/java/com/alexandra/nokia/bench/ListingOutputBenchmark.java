@@ -0,0 +1,81 @@
+package com.alexandra.nokia.bench;
+
+import com.alexandra.nokia.cli.ListingPrinter;
+import com.alexandra.nokia.model.Movie;
+import com.alexandra.nokia.model.MovieWithActors;
+import com.alexandra.nokia.model.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Console rendering of a listing into an auto-flushing stream that discards the bytes, so only
+ * formatting and stream overhead is measured: the former per-line {@code println} +
+ * {@code String.format} against {@link ListingPrinter}. Scores are per listing of {@code rows} movies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListingOutputBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+    private List<MovieWithActors> movies;
+
+    @Setup
+    public void setup() {
+        movies = new ArrayList<>(rows);
+        Person director = new Person(1, "Steven Spielberg", "American");
+        List<Person> cast = List.of(new Person(2, "Liam Neeson", "Irish"), new Person(3, "Ben Kingsley", "British"));
+        for (int i = 0; i < rows; i++) {
+            movies.add(new MovieWithActors(new Movie(i, "Movie title number " + i, (i * 7919) % 36_000, director), cast));
+        }
+    }
+
+    @Benchmark
+    public void printlnPerLine() {
+        for (MovieWithActors mwa : movies) {
+            Movie m = mwa.movie();
+            out.println(m.title() + " by " + m.director().name() + ", " + legacyFormat(m.lengthSeconds()));
+        }
+    }
+
+    @Benchmark
+    public void listingPrinter() {
+        ListingPrinter printer = new ListingPrinter(out);
+        for (MovieWithActors mwa : movies) printer.movie(mwa.movie());
+        printer.flush();
+    }
+
+    @Benchmark
+    public void printlnPerLineVerbose() {
+        for (MovieWithActors mwa : movies) {
+            Movie m = mwa.movie();
+            out.println(m.title() + " by " + m.director().name() + ", " + legacyFormat(m.lengthSeconds()));
+            out.println("\tStarring:");
+            for (Person actor : mwa.actors()) out.println("\t\t- " + actor.name());
+        }
+    }
+
+    @Benchmark
+    public void listingPrinterVerbose() {
+        ListingPrinter printer = new ListingPrinter(out);
+        for (MovieWithActors mwa : movies) printer.movieWithActors(mwa);
+        printer.flush();
+    }
+
+    /** TimeUtil.formatSecondsToHhMmSs as it was before the hand-rolled version. */
+    private static String legacyFormat(int totalSeconds) {
+        int rem = totalSeconds % 3600;
+        return String.format("%02d:%02d:%02d", totalSeconds / 3600, rem / 60, rem % 60);
+    }
+}
@@ -0,0 +1,44 @@
+package com.alexandra.nokia.bench;
+
+import com.alexandra.nokia.cli.CommandTokenizer;
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.cli.ListQueryParser;
+import com.alexandra.nokia.util.TimeUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** CPU-only hot paths of the console: tokenizing, list switch parsing and duration formatting. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParsingBenchmark {
+
+    @Param({"l -t \"Die .*\" -d \"McTiernan\" -a \"Bruce Willis\" -ld -v"})
+    public String line;
+
+    private List<String> tokens;
+    private int seconds;
+
+    @Setup
+    public void setup() {
+        tokens = CommandTokenizer.tokenize(line);
+    }
+
+    @Benchmark
+    public List<String> tokenize() {
+        return CommandTokenizer.tokenize(line);
+    }
+
+    @Benchmark
+    public ListQuery parseListQuery() {
+        return ListQueryParser.parse(tokens);
+    }
+
+    @Benchmark
+    public String formatDuration() {
+        seconds = (seconds + 7919) % 36_000;
+        return TimeUtil.formatSecondsToHhMmSs(seconds);
+    }
+}
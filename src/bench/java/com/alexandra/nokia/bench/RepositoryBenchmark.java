@@ -0,0 +1,114 @@
+package com.alexandra.nokia.bench;
+
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.Database;
+import com.alexandra.nokia.db.Schema;
+import com.alexandra.nokia.repo.MovieRepository;
+import com.alexandra.nokia.service.MovieService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Listing and writing against a synthetic in-memory H2 catalog.
+ * Catalog size and cast size are JMH params, e.g. {@code -p movies=10000,1000000 -p castSize=5,40}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositoryBenchmark {
+    private static final AtomicLong DB_COUNTER = new AtomicLong();
+
+    @Param({"10000"})
+    public int movies;
+
+    @Param({"5"})
+    public int castSize;
+
+    private ConnectionPool pool;
+    private MovieService service;
+    private Connection conn;
+    private MovieRepository repo;
+    private List<String> newCast;
+    private long added;
+
+    private final ListQuery all = new ListQuery(false, null, null, null, ListQuery.Ordering.TITLE_DEFAULT);
+    private final ListQuery allVerbose = new ListQuery(true, null, null, null, ListQuery.Ordering.TITLE_DEFAULT);
+    private final ListQuery byLength = new ListQuery(false, null, null, null, ListQuery.Ordering.LENGTH_DESC);
+    private final ListQuery titlePrefix = new ListQuery(false, "^Star Wars.*", null, null, ListQuery.Ordering.TITLE_DEFAULT);
+    private final ListQuery titleSubstring = new ListQuery(false, ".*Empire.*", null, null, ListQuery.Ordering.TITLE_DEFAULT);
+    private final ListQuery byActor = new ListQuery(true, null, null, "^Person 42$", ListQuery.Ordering.TITLE_DEFAULT);
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        String url = "jdbc:h2:mem:bench" + DB_COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        pool = new Database(url).createPool(4, 10_000, ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+        try (Connection c = pool.getConnection()) {
+            Schema.init(c);
+            CatalogSeeder.seed(c, movies, castSize, 42);
+        }
+        service = new MovieService(pool);
+        service.rebuildSearchIndex();
+
+        conn = pool.getConnection();
+        repo = new MovieRepository(conn);
+
+        newCast = new ArrayList<>();
+        for (int i = 1; i <= castSize; i++) newCast.add(CatalogSeeder.personName(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conn.close();
+        try (Connection c = pool.getConnection()) {
+            c.createStatement().execute("DROP ALL OBJECTS");
+        }
+        pool.close();
+    }
+
+    @Benchmark
+    public void repoListMovies(Blackhole bh) throws SQLException {
+        repo.forEachMovie(all, bh::consume);
+    }
+
+    @Benchmark
+    public void repoListMoviesByLength(Blackhole bh) throws SQLException {
+        repo.forEachMovie(byLength, bh::consume);
+    }
+
+    @Benchmark
+    public void repoListMoviesVerbose(Blackhole bh) throws SQLException {
+        repo.forEachMovieVerbose(allVerbose, bh::consume);
+    }
+
+    @Benchmark
+    public void serviceListTitlePrefix(Blackhole bh) throws SQLException {
+        service.forEachMovie(titlePrefix, bh::consume);
+    }
+
+    @Benchmark
+    public void serviceListTitleSubstring(Blackhole bh) throws SQLException {
+        service.forEachMovie(titleSubstring, bh::consume);
+    }
+
+    @Benchmark
+    public void serviceListByActorVerbose(Blackhole bh) throws SQLException {
+        service.forEachMovieVerbose(byActor, bh::consume);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void serviceAddMovie() throws SQLException {
+        service.addMovie("Bench Movie " + (++added), 5400, CatalogSeeder.personName(1), newCast);
+    }
+}
@@ -1,27 +1,268 @@
 package com.alexandra.nokia;
 
+import com.alexandra.nokia.bulk.CatalogSnapshot;
+import com.alexandra.nokia.bulk.ExportReport;
+import com.alexandra.nokia.bulk.ImportOptions;
+import com.alexandra.nokia.bulk.ImportReport;
+import com.alexandra.nokia.bulk.SnapshotReport;
+import com.alexandra.nokia.cli.AppOptions;
+import com.alexandra.nokia.cli.AppOptionsParser;
 import com.alexandra.nokia.cli.ConsoleApp;
+import com.alexandra.nokia.cli.ScriptRunner;
+import com.alexandra.nokia.db.ConnectionPool;
 import com.alexandra.nokia.db.Database;
+import com.alexandra.nokia.db.FileStorage;
 import com.alexandra.nokia.db.Schema;
+import com.alexandra.nokia.metrics.MetricsReporter;
+import com.alexandra.nokia.readmodel.MovieReadModel;
+import com.alexandra.nokia.repo.MovieRepository;
+import com.alexandra.nokia.server.QueryServer;
 import com.alexandra.nokia.service.MovieService;
+import com.alexandra.nokia.service.SnapshotScheduler;
+import com.alexandra.nokia.util.TimeUtil;
 
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 public class Main {
     public static void main(String[] args) {
-        String url = "jdbc:h2:mem:moviedb;DB_CLOSE_DELAY=-1";
+        AppOptions options;
+        Database database;
+        try {
+            options = AppOptionsParser.parse(args);
+            database = database(options);
+        } catch (IllegalArgumentException e) {
+            System.out.println("- " + e.getMessage());
+            System.out.println(AppOptionsParser.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        // Ctrl+C / System.exit still stop the server first, commit queued writes and close a file database cleanly
+        QueryServer[] server = {null};
+        MovieService[] services = {null};
+        SnapshotScheduler[] snapshots = {null};
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (server[0] != null) server[0].stop(5);
+            // before the service closes: the final snapshot needs the pool
+            if (snapshots[0] != null) snapshots[0].close();
+            if (services[0] != null) services[0].close();
+            shutdownQuietly(database);
+        }, "shutdown"));
 
+        int poolSize = Integer.getInteger("moviedb.poolSize", 4);
+        long checkoutTimeoutMillis = Long.getLong("moviedb.poolTimeoutMillis", 5_000);
+        int statementCacheSize = Integer.getInteger("moviedb.statementCacheSize", ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
 
-        try (Connection conn = new Database(url).connect()) {
-            Schema.init(conn);
-            System.out.println("Connected to database successfully.");
+        boolean scriptFailed = false;
+        try {
+            try (ConnectionPool pool = database.createPool(poolSize, checkoutTimeoutMillis, statementCacheSize)) {
+                try (Connection conn = pool.getConnection()) {
+                    Schema.init(conn);
+                }
+                System.out.println("Connected to database successfully.");
 
-            MovieService service = new MovieService(conn);
-            new ConsoleApp(service).run();
+                MovieService service = new MovieService(pool,
+                        Integer.getInteger("moviedb.personCacheSize", MovieService.DEFAULT_PERSON_CACHE_SIZE),
+                        Integer.getInteger("moviedb.resultCacheRows", MovieService.DEFAULT_RESULT_CACHE_ROWS));
+                service.setListFetchSize(Integer.getInteger("moviedb.fetchSize", MovieRepository.DEFAULT_FETCH_SIZE));
+                services[0] = service;
+                if (Boolean.getBoolean("moviedb.writeBehind")) {
+                    service.enableWriteBehind(Integer.getInteger("moviedb.writeQueue", 1024),
+                            Integer.getInteger("moviedb.writeBatch", 256),
+                            Long.getLong("moviedb.writeWindowMillis", 5));
+                }
+                configureSlowQueryLog(pool);
+                MovieReadModel.ScanOptions scan = readModelScan();
+                if (scan != null) {
+                    service.enableReadModel(scan);
+                }
+                // a restore rebuilds the stats and search index itself
+                boolean restored = options.snapshot() != null && restoreSnapshot(service, options);
+                if (!restored) {
+                    service.loadStats();
+                    if (database.isPersistent()) {
+                        // an existing catalog can be large: don't make startup wait for the search index
+                        service.rebuildSearchIndexInBackground();
+                    } else {
+                        service.rebuildSearchIndex();
+                    }
+                }
+
+                String metricsFile = System.getProperty("moviedb.metricsFile");
+                MetricsReporter reporter = metricsFile == null ? null
+                        : new MetricsReporter(pool.metrics(), Path.of(metricsFile), Long.getLong("moviedb.metricsIntervalSeconds", 60));
+                try (SnapshotScheduler snapshotScheduler = service.snapshotFile() == null ? null
+                        : new SnapshotScheduler(service, Long.getLong("moviedb.snapshotIntervalSeconds", 300))) {
+                    snapshots[0] = snapshotScheduler;
+                    if (options.hasImport()) {
+                        runImport(service, options);
+                    }
+                    if (options.exportDir() != null) {
+                        runExport(service, options);
+                    }
+                    if (options.serverPort() > 0) {
+                        server[0] = new QueryServer(service, options.serverPort(),
+                                Integer.getInteger("moviedb.serverWorkers", poolSize * 2),
+                                Integer.getInteger("moviedb.serverQueue", 256));
+                        server[0].start();
+                        System.out.println("Listening on http://localhost:" + server[0].port() + "/ (Ctrl+C to stop)");
+                        new CountDownLatch(1).await();
+                    } else if (options.script() != null) {
+                        scriptFailed = !runScript(service, options);
+                    } else {
+                        new ConsoleApp(service).run();
+                    }
+                } finally {
+                    // last dump after everything else has run
+                    if (reporter != null) reporter.close();
+                }
+                service.close();
+            }
+            // the pool is closed by now, so SHUTDOWN runs as the only session
+            database.shutdown();
+            if (scriptFailed) System.exit(1);
 
         } catch (Exception e) {
             System.out.println("Failed to connect to database. Terminating.");
             System.exit(1);
         }
     }
+
+    /** In memory unless a file is given with --db (or -Dmoviedb.db); storage tuning comes from system properties. */
+    private static Database database(AppOptions options) {
+        Path file = options.database();
+        if (file == null && System.getProperty("moviedb.db") != null) {
+            file = Path.of(System.getProperty("moviedb.db"));
+        }
+        if (file == null) return new Database(Database.IN_MEMORY_URL);
+
+        return new Database(new FileStorage(file,
+                Integer.getInteger("moviedb.cacheSizeMb", FileStorage.DEFAULT_CACHE_SIZE_MB),
+                Integer.getInteger("moviedb.writeDelayMillis", FileStorage.DEFAULT_WRITE_DELAY_MILLIS),
+                Integer.getInteger("moviedb.maxCompactTimeMillis", FileStorage.DEFAULT_MAX_COMPACT_TIME_MILLIS),
+                Boolean.getBoolean("moviedb.compactOnShutdown")));
+    }
+
+    private static void shutdownQuietly(Database database) {
+        try {
+            database.shutdown();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * The read model is on with {@code moviedb.readModel}; {@code moviedb.parallelFilter} turns it
+     * on too and lets large filtered listings use all cores. Null when it is off.
+     */
+    private static MovieReadModel.ScanOptions readModelScan() {
+        boolean parallel = Boolean.getBoolean("moviedb.parallelFilter");
+        if (!parallel && !Boolean.getBoolean("moviedb.readModel")) return null;
+
+        return new MovieReadModel.ScanOptions(
+                parallel ? Integer.getInteger("moviedb.parallelMinMovies", MovieReadModel.ScanOptions.DEFAULT_PARALLEL_MIN_MOVIES)
+                        : Integer.MAX_VALUE,
+                Long.getLong("moviedb.queryTimeoutMillis", MovieReadModel.ScanOptions.DEFAULT_TIMEOUT_MILLIS));
+    }
+
+    /** Slow operations/statements go to stderr, or appended to {@code moviedb.slowQueryLog} when set. */
+    private static void configureSlowQueryLog(ConnectionPool pool) throws Exception {
+        long thresholdMillis = Long.getLong("moviedb.slowQueryMillis", 500);
+        String logFile = System.getProperty("moviedb.slowQueryLog");
+        PrintStream out = logFile == null ? System.err
+                : new PrintStream(new FileOutputStream(logFile, true), true, StandardCharsets.UTF_8);
+        pool.metrics().setSlowQueryLog(thresholdMillis, out);
+    }
+
+    /** Runs {@code --script}; false when it stopped on an error or any command failed. */
+    private static boolean runScript(MovieService service, AppOptions options) throws IOException {
+        ScriptRunner runner = new ScriptRunner(service, options.continueOnError(), options.groupSize());
+        ScriptRunner.Summary summary;
+        try (BufferedReader in = options.script().equals(AppOptions.STDIN)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(options.script(), StandardCharsets.UTF_8)) {
+            summary = runner.run(in);
+        } catch (NoSuchFileException e) {
+            System.out.println("- Script failed: file not found " + e.getFile());
+            return false;
+        }
+        System.out.println("- " + summary.text());
+        return summary.succeeded();
+    }
+
+    /**
+     * Restores {@code --snapshot} when the catalog is empty (always, for the in-memory database)
+     * and says how old the snapshot is; true when the catalog now comes from it. A file that can't
+     * be read is left alone: it isn't configured as the service's snapshot file, so nothing
+     * overwrites it.
+     */
+    private static boolean restoreSnapshot(MovieService service, AppOptions options) {
+        Path file = options.snapshot();
+        if (!Files.exists(file)) {
+            service.setSnapshotFile(file);
+            System.out.println("- No snapshot at " + file + " yet, one is written on exit");
+            return false;
+        }
+        try {
+            Instant createdAt = CatalogSnapshot.createdAt(file);
+            String age = TimeUtil.formatAge(Duration.between(createdAt, Instant.now()).getSeconds());
+            service.setSnapshotFile(file);
+            try {
+                SnapshotReport r = service.restoreSnapshot(file, new ImportOptions(options.batchSize(), options.commitSize()));
+                System.out.println("- Restored snapshot taken " + age + " ago from " + r.summary());
+                return true;
+            } catch (IllegalStateException e) {
+                System.out.println("- Snapshot " + file + " (taken " + age + " ago) not restored: the catalog is not empty");
+                return false;
+            }
+        } catch (Exception e) {
+            service.setSnapshotFile(null);
+            System.out.println("- Snapshot restore failed: " + e.getMessage());
+            System.out.println("- " + file + " is left as it is, no snapshots will be written");
+            return false;
+        }
+    }
+
+    private static void runExport(MovieService service, AppOptions options) {
+        try {
+            for (ExportReport r : service.exportCatalog(options.exportDir(), options.exportFormat())) {
+                System.out.println("- Exported " + r.summary());
+            }
+        } catch (Exception e) {
+            System.out.println("- Export failed: " + e.getMessage());
+        }
+    }
+
+    private static void runImport(MovieService service, AppOptions options) {
+        try {
+            List<ImportReport> reports = service.importFiles(
+                    options.importPeople(), options.importMovies(), options.importCast(),
+                    new ImportOptions(options.batchSize(), options.commitSize()));
+            for (ImportReport r : reports) {
+                System.out.println("- Imported " + r.summary());
+                for (String rejected : r.rejectedSamples()) {
+                    System.out.println("    rejected " + rejected);
+                }
+                if (r.rowsRejected() > r.rejectedSamples().size()) {
+                    System.out.println("    ... and " + (r.rowsRejected() - r.rejectedSamples().size()) + " more");
+                }
+            }
+        } catch (NoSuchFileException e) {
+            System.out.println("- Import failed: file not found " + e.getFile());
+        } catch (Exception e) {
+            System.out.println("- Import failed: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,200 @@
+package com.alexandra.nokia.bulk;
+
+import com.alexandra.nokia.repo.PersonRepository;
+import com.alexandra.nokia.util.TimeUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Streams people / movies / cast files into the database with batched prepared statements.
+ * <p>
+ * Files are CSV (or TSV when the name ends with .tsv), one record per line, with an optional
+ * header line:
+ * <ul>
+ *   <li>people: {@code name,nationality}</li>
+ *   <li>movies: {@code title,hh:mm:ss,director name}</li>
+ *   <li>cast:   {@code title,director name,actor name}</li>
+ * </ul>
+ * The same rules as the interactive flows apply: people names are unique, title + director
+ * identifies a movie (an existing one gets its length updated) and cast rows are merged.
+ * Bad rows are counted and reported instead of aborting the import.
+ * The connection must not be in autocommit mode; the importer commits every {@code commitSize} rows.
+ */
+public class BulkImporter {
+    private static final int MAX_REJECTED_SAMPLES = 100;
+    // column sizes in Schema; checked per row so one long value is a rejected row, not a failed batch
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_NATIONALITY_LENGTH = 100;
+    private static final int MAX_TITLE_LENGTH = 255;
+
+    private final Connection conn;
+    private final ImportOptions options;
+
+    public BulkImporter(Connection conn, ImportOptions options) {
+        this.conn = conn;
+        this.options = options;
+    }
+
+    public ImportReport importPeople(Path file) throws IOException, SQLException {
+        Set<String> names = new HashSet<>();
+        new PersonRepository(conn).forEachName((name, id) -> names.add(name));
+
+        String sql = "INSERT INTO people(name, nationality) VALUES (?, ?)";
+        return run("people", file, sql, "name", (fields, ps) -> {
+            expectFields(fields, 2);
+            String name = required(fields.get(0), "name", MAX_NAME_LENGTH);
+            String nationality = required(fields.get(1), "nationality", MAX_NATIONALITY_LENGTH);
+            if (!names.add(name)) throw new IllegalArgumentException("Person already exists: \"" + name + "\"");
+            ps.setString(1, name);
+            ps.setString(2, nationality);
+        });
+    }
+
+    public ImportReport importMovies(Path file) throws IOException, SQLException {
+        Map<String, Long> peopleIds = loadPeopleIds();
+
+        // MERGE on (title, director_id) is exactly the "same title + director => same movie" rule
+        String sql = "MERGE INTO movies(title, length_seconds, director_id) KEY(title, director_id) VALUES (?, ?, ?)";
+        return run("movies", file, sql, "title", (fields, ps) -> {
+            expectFields(fields, 3);
+            String title = required(fields.get(0), "title", MAX_TITLE_LENGTH);
+            int lengthSeconds = TimeUtil.parseHhMmSsToSeconds(fields.get(1));
+            long directorId = resolve(peopleIds, fields.get(2));
+            ps.setString(1, title);
+            ps.setInt(2, lengthSeconds);
+            ps.setLong(3, directorId);
+        });
+    }
+
+    public ImportReport importCast(Path file) throws IOException, SQLException {
+        Map<String, Long> peopleIds = loadPeopleIds();
+        Map<String, Long> movieIds = loadMovieIds();
+
+        String sql = "MERGE INTO movie_actors(movie_id, actor_id) KEY(movie_id, actor_id) VALUES (?, ?)";
+        return run("cast", file, sql, "title", (fields, ps) -> {
+            expectFields(fields, 3);
+            String title = required(fields.get(0), "title", MAX_TITLE_LENGTH);
+            long directorId = resolve(peopleIds, fields.get(1));
+            Long movieId = movieIds.get(movieKey(title, directorId));
+            if (movieId == null) {
+                throw new IllegalArgumentException("We could not find movie \"" + title + "\" by \"" + fields.get(1) + "\"");
+            }
+            ps.setLong(1, movieId);
+            ps.setLong(2, resolve(peopleIds, fields.get(2)));
+        });
+    }
+
+    private ImportReport run(String kind, Path file, String sql, String headerFirstField, RowBinder binder)
+            throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        char sep = DelimitedLine.separatorFor(file);
+        long read = 0;
+        long written = 0;
+        long rejected = 0;
+        List<String> samples = new ArrayList<>();
+
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int inBatch = 0;
+            int sinceCommit = 0;
+            long lineNo = 0;
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+
+                if (lineNo == 1 && isHeader(line, sep, headerFirstField)) continue;
+
+                read++;
+                try {
+                    binder.bind(DelimitedLine.parse(line, sep), ps);
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                    if (samples.size() < MAX_REJECTED_SAMPLES) samples.add("line " + lineNo + ": " + e.getMessage());
+                    continue;
+                }
+
+                ps.addBatch();
+                inBatch++;
+                sinceCommit++;
+                written++;
+                if (inBatch >= options.batchSize()) {
+                    ps.executeBatch();
+                    inBatch = 0;
+                }
+                if (sinceCommit >= options.commitSize()) {
+                    if (inBatch > 0) ps.executeBatch();
+                    inBatch = 0;
+                    conn.commit();
+                    sinceCommit = 0;
+                }
+            }
+
+            if (inBatch > 0) ps.executeBatch();
+            conn.commit();
+        }
+
+        return new ImportReport(kind, read, written, rejected, samples, System.currentTimeMillis() - start);
+    }
+
+    private static boolean isHeader(String line, char sep, String firstField) {
+        try {
+            return DelimitedLine.parse(line, sep).get(0).equalsIgnoreCase(firstField);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Map<String, Long> loadPeopleIds() throws SQLException {
+        Map<String, Long> ids = new HashMap<>();
+        new PersonRepository(conn).forEachName((name, id) -> ids.put(name, id));
+        return ids;
+    }
+
+    private Map<String, Long> loadMovieIds() throws SQLException {
+        Map<String, Long> ids = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, title, director_id FROM movies")) {
+            while (rs.next()) {
+                ids.put(movieKey(rs.getString("title"), rs.getLong("director_id")), rs.getLong("id"));
+            }
+        }
+        return ids;
+    }
+
+    private static String movieKey(String title, long directorId) {
+        return directorId + "\u0000" + title;
+    }
+
+    private static long resolve(Map<String, Long> peopleIds, String name) {
+        Long id = peopleIds.get(name);
+        if (id == null) throw new IllegalArgumentException("We could not find \"" + name + "\"");
+        return id;
+    }
+
+    private static void expectFields(List<String> fields, int count) {
+        if (fields.size() != count) {
+            throw new IllegalArgumentException("expected " + count + " fields but got " + fields.size());
+        }
+    }
+
+    private static String required(String value, String field, int maxLength) {
+        if (value.isEmpty()) throw new IllegalArgumentException("missing " + field);
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(List<String> fields, PreparedStatement ps) throws SQLException;
+    }
+}
@@ -0,0 +1,142 @@
+package com.alexandra.nokia.bulk;
+
+import com.alexandra.nokia.util.Json;
+import com.alexandra.nokia.util.TimeUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+
+/**
+ * Writes people, movies and the cast relation to CSV or JSON Lines.
+ * <p>
+ * Every table is read with a forward-only cursor and written row by row through a large
+ * buffered writer, so memory stays flat whatever the catalog size. Each file is written to a
+ * temporary name first and moved into place when complete, so a reader never sees half a file.
+ * CSV files use the same columns as {@link BulkImporter} and can be imported back as they are.
+ */
+public class CatalogExporter {
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final Connection conn;
+    private final int fetchSize;
+
+    public CatalogExporter(Connection conn, int fetchSize) {
+        this.conn = conn;
+        this.fetchSize = fetchSize;
+    }
+
+    public ExportReport exportPeople(Path dir, ExportFormat format) throws IOException, SQLException {
+        String sql = "SELECT id, name, nationality FROM people ORDER BY id";
+        return export("people", dir, format, sql, "name,nationality", (rs, line) -> {
+            if (format == ExportFormat.CSV) {
+                DelimitedLine.appendField(line, rs.getString("name"), ',');
+                line.append(',');
+                DelimitedLine.appendField(line, rs.getString("nationality"), ',');
+            } else {
+                line.append("{\"id\":").append(rs.getLong("id"));
+                Json.appendString(line.append(",\"name\":"), rs.getString("name"));
+                Json.appendString(line.append(",\"nationality\":"), rs.getString("nationality"));
+                line.append('}');
+            }
+        });
+    }
+
+    public ExportReport exportMovies(Path dir, ExportFormat format) throws IOException, SQLException {
+        String sql = """
+            SELECT m.id, m.title, m.length_seconds, d.id AS director_id, d.name AS director_name
+            FROM movies m
+            JOIN people d ON d.id = m.director_id
+            ORDER BY m.id
+        """;
+        return export("movies", dir, format, sql, "title,length,director", (rs, line) -> {
+            if (format == ExportFormat.CSV) {
+                DelimitedLine.appendField(line, rs.getString("title"), ',');
+                line.append(',').append(TimeUtil.formatSecondsToHhMmSs(rs.getInt("length_seconds"))).append(',');
+                DelimitedLine.appendField(line, rs.getString("director_name"), ',');
+            } else {
+                line.append("{\"id\":").append(rs.getLong("id"));
+                Json.appendString(line.append(",\"title\":"), rs.getString("title"));
+                line.append(",\"lengthSeconds\":").append(rs.getInt("length_seconds"));
+                line.append(",\"directorId\":").append(rs.getLong("director_id"));
+                Json.appendString(line.append(",\"director\":"), rs.getString("director_name"));
+                line.append('}');
+            }
+        });
+    }
+
+    public ExportReport exportCast(Path dir, ExportFormat format) throws IOException, SQLException {
+        String sql = """
+            SELECT m.id AS movie_id, m.title, d.name AS director_name, a.id AS actor_id, a.name AS actor_name
+            FROM movie_actors ma
+            JOIN movies m ON m.id = ma.movie_id
+            JOIN people d ON d.id = m.director_id
+            JOIN people a ON a.id = ma.actor_id
+            ORDER BY ma.movie_id, ma.actor_id
+        """;
+        return export("cast", dir, format, sql, "title,director,actor", (rs, line) -> {
+            if (format == ExportFormat.CSV) {
+                DelimitedLine.appendField(line, rs.getString("title"), ',');
+                line.append(',');
+                DelimitedLine.appendField(line, rs.getString("director_name"), ',');
+                line.append(',');
+                DelimitedLine.appendField(line, rs.getString("actor_name"), ',');
+            } else {
+                line.append("{\"movieId\":").append(rs.getLong("movie_id"));
+                line.append(",\"actorId\":").append(rs.getLong("actor_id"));
+                Json.appendString(line.append(",\"title\":"), rs.getString("title"));
+                Json.appendString(line.append(",\"director\":"), rs.getString("director_name"));
+                Json.appendString(line.append(",\"actor\":"), rs.getString("actor_name"));
+                line.append('}');
+            }
+        });
+    }
+
+    private ExportReport export(String kind, Path dir, ExportFormat format, String sql, String csvHeader,
+                                RowWriter rowWriter) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        Files.createDirectories(dir);
+        Path target = dir.resolve(kind + "." + format.extension());
+        Path tmp = dir.resolve(kind + "." + format.extension() + ".tmp");
+        long rows = 0;
+
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(tmp), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+             Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(fetchSize);
+
+            if (format == ExportFormat.CSV) {
+                out.write(csvHeader);
+                out.write('\n');
+            }
+
+            StringBuilder line = new StringBuilder(256);
+            try (ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    line.setLength(0);
+                    rowWriter.write(rs, line);
+                    line.append('\n');
+                    out.append(line);
+                    rows++;
+                }
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new ExportReport(kind, target, rows, System.currentTimeMillis() - start);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs, StringBuilder line) throws SQLException;
+    }
+}
@@ -0,0 +1,422 @@
+package com.alexandra.nokia.bulk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of people, movies and cast with their ids, for a fast warm start of the
+ * in-memory catalog.
+ * <p>
+ * Layout: an 8 byte magic, format version (int) and creation time (epoch millis), then
+ * length-prefixed records {@code [int length][byte type][payload]} - every person, then every
+ * movie, then every cast pair - and a final END record with the three counts and a CRC32 of
+ * everything before it. Strings are {@code [int byte length][UTF-8]}; numbers are big-endian.
+ * <p>
+ * {@link #write} streams the tables through a direct buffer into a {@link FileChannel}, forces
+ * it to disk under a temporary name and moves it into place, so a reader only ever sees a
+ * complete snapshot. {@link #restore} memory-maps the file (in windows, so any size works) and
+ * inserts rows with their original ids in JDBC batches; it only restores into an empty catalog
+ * and leaves it empty again if anything fails (including a truncated or corrupt file, which is
+ * caught by the counts and CRC at the end).
+ */
+public class CatalogSnapshot {
+    private static final byte[] MAGIC = "MOVIEDB\u0001".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + Long.BYTES;
+
+    private static final byte END = 0;
+    private static final byte PERSON = 1;
+    private static final byte MOVIE = 2;
+    private static final byte CAST = 3;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    // mapped window while loading; remapped at a record boundary when a record doesn't fit
+    private static final long MAP_WINDOW = 64L << 20;
+
+    private final Connection conn;
+    private final int fetchSize;
+    private final ImportOptions options;
+
+    public CatalogSnapshot(Connection conn, int fetchSize, ImportOptions options) {
+        this.conn = conn;
+        this.fetchSize = fetchSize;
+        this.options = options;
+    }
+
+    /** When {@code file} was taken, from its header. */
+    public static Instant createdAt(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && ch.read(header) >= 0) {
+                // read until full or end of file
+            }
+            header.flip();
+            return readHeader(header, file);
+        }
+    }
+
+    /** Writes the catalog as seen by this connection; run it in a REPEATABLE_READ transaction for a consistent copy. */
+    public SnapshotReport write(Path file) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        Instant createdAt = Instant.ofEpochMilli(start);
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        long[] counts = new long[3];
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            RecordWriter out = new RecordWriter(ch);
+            out.header(createdAt.toEpochMilli());
+
+            counts[0] = out.table("SELECT id, name, nationality FROM people ORDER BY id", rs -> {
+                byte[] name = utf8(rs.getString(2));
+                byte[] nationality = utf8(rs.getString(3));
+                out.begin(PERSON, Long.BYTES + string(name) + string(nationality))
+                        .putLong(rs.getLong(1)).putString(name).putString(nationality);
+            });
+            counts[1] = out.table("SELECT id, title, length_seconds, director_id FROM movies ORDER BY id", rs -> {
+                byte[] title = utf8(rs.getString(2));
+                out.begin(MOVIE, Long.BYTES + string(title) + Integer.BYTES + Long.BYTES)
+                        .putLong(rs.getLong(1)).putString(title).putInt(rs.getInt(3)).putLong(rs.getLong(4));
+            });
+            counts[2] = out.table("SELECT movie_id, actor_id FROM movie_actors ORDER BY movie_id, actor_id", rs ->
+                    out.begin(CAST, 2 * Long.BYTES).putLong(rs.getLong(1)).putLong(rs.getLong(2)));
+
+            out.end(counts);
+            ch.force(true);
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new SnapshotReport(file, counts[0], counts[1], counts[2], Files.size(file), createdAt,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Loads {@code file} into the empty catalog with the original ids and moves the id sequences
+     * past them. The connection must not be in autocommit mode; commits every {@code commitSize} rows.
+     */
+    public SnapshotReport restore(Path file) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        if (!isCatalogEmpty()) throw new IllegalStateException("Snapshot can only be restored into an empty catalog");
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            RecordReader in = new RecordReader(ch, file);
+            Instant createdAt = in.header();
+            long[] counts;
+            try (Inserter people = new Inserter("INSERT INTO people(id, name, nationality) VALUES (?, ?, ?)");
+                 Inserter movies = new Inserter("INSERT INTO movies(id, title, length_seconds, director_id) VALUES (?, ?, ?, ?)");
+                 Inserter cast = new Inserter("INSERT INTO movie_actors(movie_id, actor_id) VALUES (?, ?)")) {
+                counts = load(in, people, movies, cast);
+            }
+            conn.commit();
+            restartIdentity("people");
+            restartIdentity("movies");
+            conn.commit();
+            return new SnapshotReport(file, counts[0], counts[1], counts[2], ch.size(), createdAt,
+                    System.currentTimeMillis() - start);
+        } catch (IOException | SQLException | RuntimeException e) {
+            // back to an empty catalog whose ids start over, whatever part was already committed
+            try {
+                conn.rollback();
+                clearCatalog();
+                restartIdentity("people");
+                restartIdentity("movies");
+            } catch (SQLException | RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+    }
+
+    private long[] load(RecordReader in, Inserter people, Inserter movies, Inserter cast) throws IOException, SQLException {
+        long[] counts = new long[3];
+        while (true) {
+            ByteBuffer r = in.next();
+            byte type = r.get();
+            switch (type) {
+                case PERSON -> {
+                    PreparedStatement ps = people.ps;
+                    ps.setLong(1, r.getLong());
+                    ps.setString(2, string(r));
+                    ps.setString(3, string(r));
+                    people.add();
+                    counts[0]++;
+                }
+                case MOVIE -> {
+                    people.flush();
+                    PreparedStatement ps = movies.ps;
+                    ps.setLong(1, r.getLong());
+                    ps.setString(2, string(r));
+                    ps.setInt(3, r.getInt());
+                    ps.setLong(4, r.getLong());
+                    movies.add();
+                    counts[1]++;
+                }
+                case CAST -> {
+                    movies.flush();
+                    PreparedStatement ps = cast.ps;
+                    ps.setLong(1, r.getLong());
+                    ps.setLong(2, r.getLong());
+                    cast.add();
+                    counts[2]++;
+                }
+                case END -> {
+                    people.flush();
+                    movies.flush();
+                    cast.flush();
+                    long crc = in.checksumBefore();
+                    if (r.getLong() != counts[0] || r.getLong() != counts[1] || r.getLong() != counts[2] || r.getLong() != crc) {
+                        throw new IOException("Snapshot " + in.file + " is corrupt (counts or checksum don't match)");
+                    }
+                    return counts;
+                }
+                default -> throw new IOException("Snapshot " + in.file + " is corrupt (record type " + type + ")");
+            }
+        }
+    }
+
+    public boolean isCatalogEmpty() throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT (SELECT COUNT(*) FROM people) + (SELECT COUNT(*) FROM movies)")) {
+            rs.next();
+            return rs.getLong(1) == 0;
+        }
+    }
+
+    private void restartIdentity(String table) throws SQLException {
+        long next;
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+            rs.next();
+            next = rs.getLong(1);
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+        }
+    }
+
+    private void clearCatalog() throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("DELETE FROM movie_actors");
+            st.execute("DELETE FROM movies");
+            st.execute("DELETE FROM people");
+        }
+        conn.commit();
+    }
+
+    private static Instant readHeader(ByteBuffer header, Path file) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        if (header.remaining() < HEADER_SIZE) throw new IOException(file + " is not a catalog snapshot");
+        header.get(magic);
+        if (!java.util.Arrays.equals(magic, MAGIC)) throw new IOException(file + " is not a catalog snapshot");
+        int version = header.getInt();
+        if (version != FORMAT_VERSION) throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        return Instant.ofEpochMilli(header.getLong());
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int string(byte[] utf8) {
+        return Integer.BYTES + utf8.length;
+    }
+
+    private static String string(ByteBuffer r) {
+        int length = r.getInt();
+        String s = new String(r.array(), r.arrayOffset() + r.position(), length, StandardCharsets.UTF_8);
+        r.position(r.position() + length);
+        return s;
+    }
+
+    /**
+     * Batched inserts of one table, committed every {@code commitSize} rows. Records come table by
+     * table, so a table's last batch is flushed when the next one starts (foreign keys need it).
+     */
+    private final class Inserter implements AutoCloseable {
+        final PreparedStatement ps;
+        private int inBatch;
+        private int sinceCommit;
+
+        Inserter(String sql) throws SQLException {
+            this.ps = conn.prepareStatement(sql);
+        }
+
+        void add() throws SQLException {
+            ps.addBatch();
+            if (++inBatch >= options.batchSize()) {
+                ps.executeBatch();
+                inBatch = 0;
+            }
+            if (++sinceCommit >= options.commitSize()) {
+                flush();
+                conn.commit();
+                sinceCommit = 0;
+            }
+        }
+
+        void flush() throws SQLException {
+            if (inBatch == 0) return;
+            ps.executeBatch();
+            inBatch = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            ps.close();
+        }
+    }
+
+    /** Sequential writer: records are encoded into one direct buffer that is drained into the channel when full. */
+    private final class RecordWriter {
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        RecordWriter(FileChannel ch) {
+            this.ch = ch;
+        }
+
+        void header(long createdAtMillis) throws IOException {
+            buf.put(MAGIC).putInt(FORMAT_VERSION).putLong(createdAtMillis);
+        }
+
+        long table(String sql, RowEncoder encoder) throws SQLException, IOException {
+            long rows = 0;
+            try (Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                st.setFetchSize(fetchSize);
+                try (ResultSet rs = st.executeQuery(sql)) {
+                    while (rs.next()) {
+                        encoder.encode(rs);
+                        rows++;
+                    }
+                }
+            }
+            return rows;
+        }
+
+        /** Starts a record; the caller puts exactly {@code payloadLength} bytes. */
+        RecordWriter begin(byte type, int payloadLength) throws IOException {
+            int length = 1 + payloadLength;
+            if (Integer.BYTES + length > buf.capacity()) throw new IOException("Snapshot record too large");
+            if (buf.remaining() < Integer.BYTES + length) drain();
+            buf.putInt(length).put(type);
+            return this;
+        }
+
+        RecordWriter putLong(long v) {
+            buf.putLong(v);
+            return this;
+        }
+
+        RecordWriter putInt(int v) {
+            buf.putInt(v);
+            return this;
+        }
+
+        RecordWriter putString(byte[] utf8) {
+            buf.putInt(utf8.length).put(utf8);
+            return this;
+        }
+
+        void end(long[] counts) throws IOException {
+            begin(END, 4 * Long.BYTES).putLong(counts[0]).putLong(counts[1]).putLong(counts[2]);
+            // the checksum covers everything up to (not including) its own 8 bytes
+            buf.flip();
+            crc.update(buf.duplicate());
+            buf.position(buf.limit()).limit(buf.capacity());
+            buf.putLong(crc.getValue());
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+
+        private void drain() throws IOException {
+            buf.flip();
+            crc.update(buf.duplicate());
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+    }
+
+    /**
+     * Reads records from a memory-mapped window of the file. A record's payload is copied into
+     * a small heap buffer (strings are decoded from its array); everything else stays mapped.
+     */
+    private static final class RecordReader {
+        final Path file;
+        private final FileChannel ch;
+        private final long size;
+        private final CRC32 crc = new CRC32();
+        private MappedByteBuffer window;
+        private long windowStart;
+        // bytes of the current window already added to the checksum
+        private int checksummed;
+        private ByteBuffer record = ByteBuffer.allocate(1024);
+
+        RecordReader(FileChannel ch, Path file) throws IOException {
+            this.ch = ch;
+            this.file = file;
+            this.size = ch.size();
+            map(0);
+        }
+
+        Instant header() throws IOException {
+            if (size < HEADER_SIZE) throw new IOException(file + " is not a catalog snapshot");
+            return readHeader(window, file);
+        }
+
+        /** The next record (type byte first), positioned at its start. */
+        ByteBuffer next() throws IOException {
+            require(Integer.BYTES);
+            int length = window.getInt();
+            if (length < 1) throw new IOException("Snapshot " + file + " is corrupt (record length " + length + ")");
+            require(length);
+            if (record.capacity() < length) record = ByteBuffer.allocate(Math.max(length, record.capacity() * 2));
+            record.clear().limit(length);
+            window.get(record.array(), 0, length);
+            return record;
+        }
+
+        /** CRC32 of the file up to the checksum field of the END record just read. */
+        long checksumBefore() {
+            int end = window.position() - Long.BYTES;
+            crc.update(window.duplicate().position(checksummed).limit(end));
+            checksummed = end;
+            return crc.getValue();
+        }
+
+        private void require(int bytes) throws IOException {
+            if (window.remaining() >= bytes) return;
+            long position = windowStart + window.position();
+            if (position + bytes > size) throw new IOException("Snapshot " + file + " is truncated");
+            crc.update(window.duplicate().position(checksummed).limit(window.position()));
+            map(position);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = ch.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+            checksummed = 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowEncoder {
+        void encode(ResultSet rs) throws SQLException, IOException;
+    }
+}
@@ -0,0 +1,86 @@
+package com.alexandra.nokia.bulk;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Minimal CSV/TSV line handling: quoted fields, doubled quotes inside quotes, no multi-line fields. */
+public class DelimitedLine {
+
+    public static char separatorFor(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".tsv") ? '\t' : ',';
+    }
+
+    /**
+     * Splits {@code line} into fields. Whitespace around a field is dropped, but what is inside
+     * quotes is kept as written, so a value written by {@link #appendField} reads back unchanged.
+     */
+    public static List<String> parse(String line, char sep) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        // the quoted part of the current field, as positions in "current" (-1: not quoted)
+        int quotedFrom = -1;
+        int quotedTo = -1;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                        quotedTo = current.length();
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+                if (quotedFrom < 0) quotedFrom = current.length();
+            } else if (c == sep) {
+                fields.add(field(current, quotedFrom, quotedTo));
+                current.setLength(0);
+                quotedFrom = -1;
+                quotedTo = -1;
+            } else {
+                current.append(c);
+            }
+        }
+
+        if (inQuotes) throw new IllegalArgumentException("unclosed quotes");
+        fields.add(field(current, quotedFrom, quotedTo));
+        return fields;
+    }
+
+    /** Like {@link String#trim()}, but never into the quoted part. */
+    private static String field(StringBuilder current, int quotedFrom, int quotedTo) {
+        int start = 0;
+        int end = current.length();
+        int trimUpTo = quotedFrom < 0 ? end : quotedFrom;
+        int trimDownTo = quotedFrom < 0 ? 0 : quotedTo;
+        while (start < trimUpTo && current.charAt(start) <= ' ') start++;
+        while (end > Math.max(start, trimDownTo) && current.charAt(end - 1) <= ' ') end--;
+        return current.substring(start, end);
+    }
+
+    /** Appends {@code value} as one field, quoting it only when needed. */
+    public static void appendField(StringBuilder out, String value, char sep) {
+        boolean quote = value.indexOf(sep) >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0
+                || (!value.isEmpty() && (value.charAt(0) <= ' ' || value.charAt(value.length() - 1) <= ' '));
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,14 @@
+package com.alexandra.nokia.bulk;
+
+import java.nio.file.Path;
+
+public record ExportReport(String kind, Path file, long rows, long elapsedMillis) {
+    public double rowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+
+    public String summary() {
+        return String.format("%s: %d rows to %s in %d ms (%.0f rows/s)",
+                kind, rows, file, elapsedMillis, rowsPerSecond());
+    }
+}
@@ -0,0 +1,15 @@
+package com.alexandra.nokia.bulk;
+
+/**
+ * @param batchSize  rows per JDBC executeBatch
+ * @param commitSize rows per transaction commit
+ */
+public record ImportOptions(int batchSize, int commitSize) {
+    public static final ImportOptions DEFAULT = new ImportOptions(1_000, 50_000);
+
+    public ImportOptions {
+        if (batchSize < 1 || commitSize < 1) {
+            throw new IllegalArgumentException("Batch and commit size must be positive");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.alexandra.nokia.bulk;
+
+import java.util.List;
+
+public record ImportReport(
+        String kind,
+        long rowsRead,
+        long rowsWritten,
+        long rowsRejected,
+        List<String> rejectedSamples,
+        long elapsedMillis
+) {
+    public double rowsPerSecond() {
+        return elapsedMillis == 0 ? rowsWritten : rowsWritten * 1000.0 / elapsedMillis;
+    }
+
+    public String summary() {
+        return String.format("%s: %d read, %d written, %d rejected in %d ms (%.0f rows/s)",
+                kind, rowsRead, rowsWritten, rowsRejected, elapsedMillis, rowsPerSecond());
+    }
+}
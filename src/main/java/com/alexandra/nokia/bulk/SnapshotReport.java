@@ -0,0 +1,20 @@
+package com.alexandra.nokia.bulk;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+public record SnapshotReport(Path file, long people, long movies, long castRows, long bytes, Instant createdAt,
+                             long elapsedMillis) {
+    public long rows() {
+        return people + movies + castRows;
+    }
+
+    public double rowsPerSecond() {
+        return elapsedMillis == 0 ? rows() : rows() * 1000.0 / elapsedMillis;
+    }
+
+    public String summary() {
+        return String.format("%s: %d people, %d movies, %d cast rows (%d KB) in %d ms (%.0f rows/s)",
+                file, people, movies, castRows, bytes / 1024, elapsedMillis, rowsPerSecond());
+    }
+}
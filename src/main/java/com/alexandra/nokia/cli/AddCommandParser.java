@@ -0,0 +1,45 @@
+package com.alexandra.nokia.cli;
+
+import com.alexandra.nokia.util.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-line forms of the add commands, for scripts (and the console, as an alternative to the prompts):
+ * {@code a -p "Name" "Nationality"} and {@code a -m "Title" hh:mm:ss "Director" "Actor1" "Actor2"}.
+ */
+public class AddCommandParser {
+    public record NewPerson(String name, String nationality) {}
+
+    public record NewMovie(String title, int lengthSeconds, String directorName, List<String> actorNames) {}
+
+    public static NewPerson parsePerson(List<String> tokens) {
+        if (tokens.size() != 4) {
+            throw new IllegalArgumentException("Bad input format: use a -p \"Name\" \"Nationality\"");
+        }
+        String name = tokens.get(2).trim();
+        String nationality = tokens.get(3).trim();
+        if (name.isEmpty() || nationality.isEmpty()) {
+            throw new IllegalArgumentException("Name and nationality are required");
+        }
+        return new NewPerson(name, nationality);
+    }
+
+    public static NewMovie parseMovie(List<String> tokens) {
+        if (tokens.size() < 5) {
+            throw new IllegalArgumentException("Bad input format: use a -m \"Title\" hh:mm:ss \"Director\" [\"Actor\" ...]");
+        }
+        String title = tokens.get(2).trim();
+        if (title.isEmpty()) throw new IllegalArgumentException("Title is required");
+        int lengthSeconds = TimeUtil.parseHhMmSsToSeconds(tokens.get(3).trim());
+        String director = tokens.get(4).trim();
+        if (director.isEmpty()) throw new IllegalArgumentException("Director is required");
+
+        List<String> actors = new ArrayList<>();
+        for (String actor : tokens.subList(5, tokens.size())) {
+            if (!actor.isBlank()) actors.add(actor.trim());
+        }
+        return new NewMovie(title, lengthSeconds, director, actors);
+    }
+}
@@ -0,0 +1,30 @@
+package com.alexandra.nokia.cli;
+
+import com.alexandra.nokia.bulk.ExportFormat;
+
+import java.nio.file.Path;
+
+/** Command line options of {@link com.alexandra.nokia.Main}; a null path means "not requested". */
+public record AppOptions(
+        Path importPeople,
+        Path importMovies,
+        Path importCast,
+        int batchSize,
+        int commitSize,
+        Path exportDir,
+        ExportFormat exportFormat,
+        Path database,
+        int serverPort,
+        Path script,
+        boolean continueOnError,
+        int groupSize,
+        Path snapshot
+) {
+    public static final int DEFAULT_GROUP_SIZE = 500;
+    /** {@code --script -} reads the script from standard input. */
+    public static final Path STDIN = Path.of("-");
+
+    public boolean hasImport() {
+        return importPeople != null || importMovies != null || importCast != null;
+    }
+}
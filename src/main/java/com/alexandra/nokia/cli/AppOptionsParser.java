@@ -0,0 +1,104 @@
+package com.alexandra.nokia.cli;
+
+import com.alexandra.nokia.bulk.ExportFormat;
+import com.alexandra.nokia.bulk.ImportOptions;
+
+import java.nio.file.Path;
+
+public class AppOptionsParser {
+
+    public static final String USAGE = """
+            Usage: Main [options]
+              --db <file>              keep the catalog in this H2 file (default: in memory, lost on exit)
+              --serve <port>           run the HTTP/JSON server instead of the console
+              --import-people <file>   import people (name,nationality) before starting
+              --import-movies <file>   import movies (title,hh:mm:ss,director)
+              --import-cast <file>     import cast (title,director,actor)
+              --batch-size <n>         rows per JDBC batch during import
+              --commit-size <n>        rows per transaction during import
+              --export <dir>           export people, movies and cast into <dir> after startup
+              --export-format <fmt>    csv (default) or jsonl
+              --script <file>          run the commands in <file> (- = standard input) instead of the console
+              --on-error <mode>        stop (default) or continue when a script command fails
+              --group-size <n>         script adds committed per transaction (default 500)
+              --snapshot <file>        restore an empty catalog from this binary snapshot at startup
+                                       and write it again periodically and on exit
+            Files ending in .tsv are tab separated, anything else is read as CSV.""";
+
+    public static AppOptions parse(String[] args) {
+        Path importPeople = null;
+        Path importMovies = null;
+        Path importCast = null;
+        int batchSize = ImportOptions.DEFAULT.batchSize();
+        int commitSize = ImportOptions.DEFAULT.commitSize();
+        Path exportDir = null;
+        ExportFormat exportFormat = ExportFormat.CSV;
+        Path database = null;
+        int serverPort = 0;
+        Path script = null;
+        boolean continueOnError = false;
+        int groupSize = AppOptions.DEFAULT_GROUP_SIZE;
+        Path snapshot = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--import-people" -> importPeople = Path.of(value(args, ++i, a));
+                case "--import-movies" -> importMovies = Path.of(value(args, ++i, a));
+                case "--import-cast" -> importCast = Path.of(value(args, ++i, a));
+                case "--batch-size" -> batchSize = positiveInt(value(args, ++i, a), a);
+                case "--commit-size" -> commitSize = positiveInt(value(args, ++i, a), a);
+                case "--export" -> exportDir = Path.of(value(args, ++i, a));
+                case "--export-format" -> exportFormat = exportFormat(value(args, ++i, a));
+                case "--db" -> database = Path.of(value(args, ++i, a));
+                case "--serve" -> serverPort = port(value(args, ++i, a), a);
+                case "--script" -> script = Path.of(value(args, ++i, a));
+                case "--on-error" -> continueOnError = continueOnError(value(args, ++i, a));
+                case "--group-size" -> groupSize = positiveInt(value(args, ++i, a), a);
+                case "--snapshot" -> snapshot = Path.of(value(args, ++i, a));
+                default -> throw new IllegalArgumentException("Bad input format: unknown option " + a);
+            }
+        }
+
+        if (script != null && serverPort > 0) {
+            throw new IllegalArgumentException("Bad input format: --script and --serve can't be combined");
+        }
+        return new AppOptions(importPeople, importMovies, importCast, batchSize, commitSize, exportDir, exportFormat,
+                database, serverPort, script, continueOnError, groupSize, snapshot);
+    }
+
+    private static boolean continueOnError(String raw) {
+        return switch (raw.toLowerCase()) {
+            case "stop" -> false;
+            case "continue" -> true;
+            default -> throw new IllegalArgumentException("Bad input format: --on-error expects stop or continue");
+        };
+    }
+
+    public static ExportFormat exportFormat(String raw) {
+        for (ExportFormat f : ExportFormat.values()) {
+            if (f.extension().equalsIgnoreCase(raw)) return f;
+        }
+        throw new IllegalArgumentException("Bad input format: export format must be csv or jsonl");
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException("Bad input format: missing parameter after " + option);
+        return args[i];
+    }
+
+    private static int port(String raw, String option) {
+        int v = positiveInt(raw, option);
+        if (v > 65535) throw new IllegalArgumentException("Bad input format: " + option + " expects a port number");
+        return v;
+    }
+
+    private static int positiveInt(String raw, String option) {
+        try {
+            int v = Integer.parseInt(raw);
+            if (v > 0) return v;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Bad input format: " + option + " expects a positive number");
+    }
+}
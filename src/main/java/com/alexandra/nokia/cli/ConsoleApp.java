@@ -1,13 +1,21 @@
 package com.alexandra.nokia.cli;
 
+import com.alexandra.nokia.bulk.ExportFormat;
+import com.alexandra.nokia.bulk.ExportReport;
+import com.alexandra.nokia.bulk.SnapshotReport;
+import com.alexandra.nokia.model.CoStar;
+import com.alexandra.nokia.model.CollaborationPath;
+import com.alexandra.nokia.model.Filmography;
 import com.alexandra.nokia.model.Movie;
-import com.alexandra.nokia.model.MovieWithActors;
+import com.alexandra.nokia.service.CatalogStats;
 import com.alexandra.nokia.service.MovieService;
 import com.alexandra.nokia.util.TimeUtil;
 
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
 
 public class ConsoleApp {
@@ -28,21 +36,39 @@ public class ConsoleApp {
         System.out.println("   - filter by director: l -d \"Spielberg\" ");
         System.out.println("   - filter by actor:    l -a \"Liam.*\" ");
         System.out.println("   - sort by duration:   l -la (asc)  |  l -ld (desc)");
+        System.out.println("   - first N only:       l -ld -n 10");
+        System.out.println("   - page by page:       l -ps 20   (Enter = next page, q = stop)");
         System.out.println();
         System.out.println("2) Add person (actor/director)");
         System.out.println("   - type: a -p");
+        System.out.println("   - in one line:        a -p \"Name\" \"Nationality\"");
         System.out.println();
         System.out.println("3) Add movie");
         System.out.println("   - type: a -m");
+        System.out.println("   - in one line:        a -m \"Title\" 01:30:00 \"Director\" \"Actor 1\" \"Actor 2\"");
         System.out.println("   (Note: the director and actors must already exist as people and the name must match EXACTLY)");
         System.out.println();
         System.out.println("4) Delete person");
         System.out.println("   - type: d -p Exact Name");
-        System.out.println("   (If this person is a director in any movie, deletion is not allowed)");
+        System.out.println("   - several at once:    d -p -m \"Name One\" \"Name Two\"");
+        System.out.println("   - by regex:           d -p -r \"^Extra .*\"");
+        System.out.println("   (If this person is a director in any movie, deletion is not allowed;");
+        System.out.println("    several people are deleted all together or not at all)");
+        System.out.println();
+        System.out.println("5) Export catalog (people, movies, cast files)");
+        System.out.println("   - type: e \"/path/to/dir\"   (CSV)  |  e \"/path/to/dir\" -j   (JSON Lines)");
+        System.out.println("   - binary snapshot:    snapshot   (to the --snapshot file)  |  snapshot \"/path/to/file\"");
+        System.out.println();
+        System.out.println("6) Who worked with whom");
+        System.out.println("   - filmography:        f \"Exact Name\"");
+        System.out.println("   - co-stars:           f \"Exact Name\" -c");
+        System.out.println("   - shortest path:      path \"Name One\" \"Name Two\"");
         System.out.println();
         System.out.println("Other:");
         System.out.println("   - menu   (show this menu again)");
         System.out.println("   - help   (show quick examples)");
+        System.out.println("   - stats  (timings and counters)  |  stats -j   (as JSON)");
+        System.out.println("   - stats -c  (catalog totals)  |  stats -p \"Exact Name\"   (movies directed, filmography size)");
         System.out.println("   - exit   (quit)");
         System.out.println("============");
         System.out.println();
@@ -73,6 +99,8 @@ public class ConsoleApp {
                 System.out.println("  a -p");
                 System.out.println("  a -m");
                 System.out.println("  d -p George Lucas");
+                System.out.println("  f \"Harrison Ford\"");
+                System.out.println("  path \"Harrison Ford\" \"George Lucas\"");
                 continue;
             }
 
@@ -88,47 +116,181 @@ public class ConsoleApp {
     private void handleLine(String line) throws Exception {
         List<String> tokens = CommandTokenizer.tokenize(line);
         if (tokens.isEmpty()) return;
+        execute(tokens);
+    }
 
+    /** Runs one tokenized command; also used by {@link ScriptRunner} for everything but adds. */
+    void execute(List<String> tokens) throws Exception {
         switch (tokens.get(0)) {
             case "l" -> handleList(tokens);
             case "a" -> handleAdd(tokens);
             case "d" -> handleDelete(tokens);
+            case "e" -> handleExport(tokens);
+            case "snapshot" -> handleSnapshot(tokens);
+            case "stats" -> handleStats(tokens);
+            case "f" -> handleFilmography(tokens);
+            case "path" -> handlePath(tokens);
             default -> throw new IllegalArgumentException("Unknown command");
         }
     }
 
     private void handleList(List<String> tokens) throws SQLException {
         ListQuery q = ListQueryParser.parse(tokens);
+        if (q.pageSize() > 0) {
+            listPaged(q);
+            return;
+        }
 
-        if (!q.verbose()) {
-            for (Movie m : service.listMovies(q)) {
-                System.out.println(formatMovieLine(m));
+        // rows are rendered while the result set is read, nothing is collected first
+        ListingPrinter printer = new ListingPrinter(System.out);
+        try {
+            if (!q.verbose()) {
+                service.forEachMovie(q, printer::movie);
+            } else {
+                service.forEachMovieVerbose(q, printer::movieWithActors);
             }
-        } else {
-            for (MovieWithActors mwa : service.listMoviesVerbose(q)) {
-                System.out.println(formatMovieLine(mwa.movie()));
-                System.out.println("\tStarring:");
-                for (var actor : mwa.actors()) {
-                    System.out.println("\t\t- " + actor.name());
+        } finally {
+            printer.flush();
+        }
+    }
+
+    /** Each page is its own query continuing after the last printed movie (no OFFSET re-scan). */
+    private void listPaged(ListQuery q) throws SQLException {
+        int remaining = q.limit() > 0 ? q.limit() : Integer.MAX_VALUE;
+        ListQuery.After after = null;
+        ListingPrinter printer = new ListingPrinter(System.out);
+
+        while (remaining > 0) {
+            ListQuery page = q.page(Math.min(q.pageSize(), remaining), after);
+            List<Movie> printed = new ArrayList<>();
+            try {
+                if (!q.verbose()) {
+                    service.forEachMovie(page, m -> {
+                        printer.movie(m);
+                        printed.add(m);
+                    });
+                } else {
+                    service.forEachMovieVerbose(page, mwa -> {
+                        printer.movieWithActors(mwa);
+                        printed.add(mwa.movie());
+                    });
                 }
+            } finally {
+                printer.flush();
             }
+
+            remaining -= printed.size();
+            if (printed.size() < page.limit() || remaining == 0) return;
+
+            System.out.print("-- more (Enter = next page, q = stop) -- ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) return;
+
+            Movie last = printed.get(printed.size() - 1);
+            after = new ListQuery.After(last.lengthSeconds(), last.title(), last.id());
         }
     }
 
-    private String formatMovieLine(Movie m) {
-        return m.title() + " by " + m.director().name() + ", " +
-                TimeUtil.formatSecondsToHhMmSs(m.lengthSeconds());
+
+    private void handleStats(List<String> tokens) throws SQLException {
+        if (tokens.size() == 1) {
+            System.out.print(service.metrics().report().toText());
+            return;
+        }
+        if (tokens.size() == 2 && tokens.get(1).equals("-j")) {
+            System.out.println(service.metrics().report().toJson());
+            return;
+        }
+        if (tokens.size() == 2 && tokens.get(1).equals("-c")) {
+            CatalogStats.CatalogTotals c = service.catalogStats();
+            StringBuilder line = new StringBuilder("- Catalog: ").append(c.movies()).append(" movies, ");
+            appendRuntime(line, c.totalSeconds(), c.averageSeconds());
+            System.out.println(line.append("; ").append(c.people()).append(" people"));
+            return;
+        }
+        if (tokens.size() == 3 && tokens.get(1).equals("-p")) {
+            String name = tokens.get(2);
+            CatalogStats.PersonStats p = service.personStats(name);
+            StringBuilder line = new StringBuilder("- ").append(name).append(": directed ").append(p.directedMovies())
+                    .append(p.directedMovies() == 1 ? " movie" : " movies");
+            if (p.directedMovies() > 0) appendRuntime(line.append(", "), p.directedSeconds(), p.averageSeconds());
+            line.append("; acts in ").append(p.filmographySize()).append(p.filmographySize() == 1 ? " movie" : " movies");
+            System.out.println(line);
+            return;
+        }
+        throw new IllegalArgumentException("Bad input format: use stats, stats -j, stats -c or stats -p \"Exact Name\"");
+    }
+
+    private static void appendRuntime(StringBuilder line, long totalSeconds, long averageSeconds) {
+        TimeUtil.appendHhMmSs(line, totalSeconds).append(" in total, ");
+        TimeUtil.appendHhMmSs(line, averageSeconds).append(" on average");
+    }
+
+    private void handleFilmography(List<String> tokens) throws SQLException {
+        boolean coStars = tokens.size() == 3 && tokens.get(2).equals("-c");
+        if (tokens.size() != 2 && !coStars) {
+            throw new IllegalArgumentException("Bad input format: use f \"Exact Name\" or f \"Exact Name\" -c");
+        }
+        String name = tokens.get(1);
+
+        if (coStars) {
+            StringBuilder out = new StringBuilder();
+            for (CoStar c : service.coStars(name)) {
+                out.append("- ").append(c.person().name()).append(" (").append(c.sharedMovies())
+                        .append(c.sharedMovies() == 1 ? " movie" : " movies").append(" together)").append(System.lineSeparator());
+            }
+            System.out.print(out.isEmpty() ? "- No co-stars" + System.lineSeparator() : out);
+            return;
+        }
+
+        Filmography f = service.filmography(name);
+        ListingPrinter printer = new ListingPrinter(System.out);
+        System.out.println("- Directed (" + f.directed().size() + "):");
+        f.directed().forEach(printer::movie);
+        printer.flush();
+        System.out.println("- Acted in (" + f.acted().size() + "):");
+        f.acted().forEach(printer::movie);
+        printer.flush();
+    }
+
+    private void handlePath(List<String> tokens) throws SQLException {
+        if (tokens.size() != 3) throw new IllegalArgumentException("Bad input format: use path \"Name One\" \"Name Two\"");
+
+        Optional<CollaborationPath> found = service.collaborationPath(tokens.get(1), tokens.get(2));
+        if (found.isEmpty()) {
+            System.out.println("- " + tokens.get(1) + " and " + tokens.get(2) + " are not connected");
+            return;
+        }
+        CollaborationPath path = found.get();
+        int steps = path.movies().size();
+        System.out.println("- " + steps + (steps == 1 ? " step:" : steps == 0 ? " steps (same person)" : " steps:"));
+        for (int i = 0; i < steps; i++) {
+            Movie m = path.movies().get(i);
+            System.out.println("\t" + path.people().get(i).name() + " - " + m.title() + " by " + m.director().name()
+                    + " - " + path.people().get(i + 1).name());
+        }
     }
 
     private void handleAdd(List<String> tokens) throws Exception {
         if (tokens.size() < 2) throw new IllegalArgumentException("Bad input format: use a -p or a -m");
 
         if (tokens.get(1).equals("-p")) {
-            addPersonFlow();
+            if (tokens.size() == 2) {
+                addPersonFlow();
+                return;
+            }
+            AddCommandParser.NewPerson p = AddCommandParser.parsePerson(tokens);
+            service.addPerson(p.name(), p.nationality());
+            System.out.println("- Person added");
             return;
         }
         if (tokens.get(1).equals("-m")) {
-            addMovieFlow();
+            if (tokens.size() == 2) {
+                addMovieFlow();
+                return;
+            }
+            AddCommandParser.NewMovie m = AddCommandParser.parseMovie(tokens);
+            service.addMovie(m.title(), m.lengthSeconds(), m.directorName(), m.actorNames());
+            System.out.println("- Movie saved");
             return;
         }
         throw new IllegalArgumentException("Bad input format: unknown add switch");
@@ -195,10 +357,50 @@ public class ConsoleApp {
         System.out.println("- Movie saved");
     }
 
+    private void handleExport(List<String> tokens) throws Exception {
+        if (tokens.size() < 2) throw new IllegalArgumentException("Bad input format: use e <directory> [-j]");
+
+        String dir = null;
+        ExportFormat format = ExportFormat.CSV;
+        for (String t : tokens.subList(1, tokens.size())) {
+            if (t.equals("-j")) {
+                format = ExportFormat.JSON_LINES;
+            } else if (dir == null) {
+                dir = t;
+            } else {
+                throw new IllegalArgumentException("Bad input format: unknown switch " + t);
+            }
+        }
+        if (dir == null) throw new IllegalArgumentException("Bad input format: missing directory");
+
+        for (ExportReport r : service.exportCatalog(Path.of(dir), format)) {
+            System.out.println("- Exported " + r.summary());
+        }
+    }
+
+    private void handleSnapshot(List<String> tokens) throws Exception {
+        if (tokens.size() > 2) throw new IllegalArgumentException("Bad input format: use snapshot [file]");
+        SnapshotReport r = tokens.size() == 2 ? service.writeSnapshot(Path.of(tokens.get(1))) : service.writeSnapshot();
+        System.out.println("- Snapshot " + r.summary());
+    }
+
     private void handleDelete(List<String> tokens) throws SQLException {
         if (tokens.size() < 3) throw new IllegalArgumentException("Bad input format: use d -p <exactName>");
         if (!tokens.get(1).equals("-p")) throw new IllegalArgumentException("Bad input format: only d -p is supported");
 
+        if (tokens.get(2).equals("-m") || tokens.get(2).equals("-r")) {
+            List<String> args = tokens.subList(3, tokens.size());
+            if (args.isEmpty()) throw new IllegalArgumentException("Bad input format: " + tokens.get(2) + " expects a value");
+            if (tokens.get(2).equals("-r") && args.size() > 1) {
+                throw new IllegalArgumentException("Bad input format: quote the regex, e.g. d -p -r \"^Extra .*\"");
+            }
+            int deleted = tokens.get(2).equals("-m")
+                    ? service.deletePeopleByExactNames(args)
+                    : service.deletePeopleMatching(args.get(0));
+            System.out.println("- " + deleted + (deleted == 1 ? " person" : " people") + " deleted");
+            return;
+        }
+
         String exactName = String.join(" ", tokens.subList(2, tokens.size())).trim();
         if (exactName.isEmpty()) throw new IllegalArgumentException("Bad input format: missing person name");
 
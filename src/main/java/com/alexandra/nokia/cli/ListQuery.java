@@ -5,7 +5,25 @@ public record ListQuery(
         String titleRegex,
         String directorRegex,
         String actorRegex,
-        Ordering ordering
+        Ordering ordering,
+        int limit,
+        int pageSize,
+        After after
 ) {
     public enum Ordering { TITLE_DEFAULT, LENGTH_ASC, LENGTH_DESC }
+
+    /**
+     * Keyset position: the last movie of the previous page. Listing continues with the rows that
+     * sort after it in the query's ordering (ties are always broken by title, then movie id).
+     */
+    public record After(int lengthSeconds, String title, long movieId) {}
+
+    public ListQuery(boolean verbose, String titleRegex, String directorRegex, String actorRegex, Ordering ordering) {
+        this(verbose, titleRegex, directorRegex, actorRegex, ordering, 0, 0, null);
+    }
+
+    /** The same query restricted to at most {@code limit} rows after {@code after} (null = from the start). */
+    public ListQuery page(int limit, After after) {
+        return new ListQuery(verbose, titleRegex, directorRegex, actorRegex, ordering, limit, 0, after);
+    }
 }
@@ -13,6 +13,8 @@ public class ListQueryParser {
         String actorRegex = null;
         boolean la = false;
         boolean ld = false;
+        int limit = 0;
+        int pageSize = 0;
 
         for (int i = 1; i < tokens.size(); i++) {
             String t = tokens.get(i);
@@ -30,6 +32,17 @@ public class ListQueryParser {
                     ld = true;
                 }
 
+                case "-n", "-ps" -> {
+                    if (i + 1 >= tokens.size())
+                        throw new IllegalArgumentException("Bad input format: missing parameter after " + t);
+
+                    int value = positiveInt(tokens.get(i + 1), t);
+                    i++;
+
+                    if (t.equals("-n")) limit = value;
+                    if (t.equals("-ps")) pageSize = value;
+                }
+
                 case "-t", "-d", "-a" -> {
                     if (i + 1 >= tokens.size())
                         throw new IllegalArgumentException("Bad input format: missing parameter after " + t);
@@ -53,7 +66,16 @@ public class ListQueryParser {
                         ld ? ListQuery.Ordering.LENGTH_DESC :
                                 ListQuery.Ordering.TITLE_DEFAULT;
 
-        return new ListQuery(verbose, titleRegex, directorRegex, actorRegex, ordering);
+        return new ListQuery(verbose, titleRegex, directorRegex, actorRegex, ordering, limit, pageSize, null);
+    }
+
+    private static int positiveInt(String raw, String option) {
+        try {
+            int v = Integer.parseInt(raw);
+            if (v > 0) return v;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Bad input format: " + option + " expects a positive number");
     }
 
     private static void assertValidRegex(String regex) {
@@ -0,0 +1,62 @@
+package com.alexandra.nokia.cli;
+
+import com.alexandra.nokia.model.Movie;
+import com.alexandra.nokia.model.MovieWithActors;
+import com.alexandra.nokia.model.Person;
+import com.alexandra.nokia.util.TimeUtil;
+
+import java.io.PrintStream;
+
+/**
+ * Renders listing rows into one reusable buffer and hands it to the stream about every 8 KB,
+ * instead of a synchronized (and auto-flushed) {@code println} plus string concatenation per line.
+ * The text is exactly what the per-line version printed. Call {@link #flush()} before prompting
+ * and when the listing is done.
+ */
+public class ListingPrinter {
+    private static final int FLUSH_AT = 1 << 13;
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final PrintStream out;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_AT + 1024);
+
+    public ListingPrinter(PrintStream out) {
+        this.out = out;
+    }
+
+    /** {@code Title by Director, hh:mm:ss} */
+    public void movie(Movie m) {
+        appendMovieLine(m);
+        flushIfFull();
+    }
+
+    /** The movie line followed by its cast, one actor per line. */
+    public void movieWithActors(MovieWithActors mwa) {
+        appendMovieLine(mwa.movie());
+        buffer.append("\tStarring:").append(NEWLINE);
+        for (Person actor : mwa.actors()) {
+            buffer.append("\t\t- ").append(actor.name()).append(NEWLINE);
+        }
+        flushIfFull();
+    }
+
+    public void flush() {
+        if (!buffer.isEmpty()) {
+            out.print(buffer);
+            buffer.setLength(0);
+        }
+        out.flush();
+    }
+
+    private void appendMovieLine(Movie m) {
+        buffer.append(m.title()).append(" by ").append(m.director().name()).append(", ");
+        TimeUtil.appendHhMmSs(buffer, m.lengthSeconds()).append(NEWLINE);
+    }
+
+    private void flushIfFull() {
+        if (buffer.length() >= FLUSH_AT) {
+            out.print(buffer);
+            buffer.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.alexandra.nokia.cli;
+
+import com.alexandra.nokia.service.MovieService;
+import com.alexandra.nokia.service.RolledBackException;
+import com.alexandra.nokia.service.WriteGroup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs console commands from a file or pipe without prompts ({@code Main --script}).
+ * <p>
+ * One command per line; blank lines and lines starting with {@code #} are skipped. Adds must use
+ * the single-line forms ({@link AddCommandParser}); consecutive adds are collected into a
+ * {@link WriteGroup} and committed together every {@code groupSize} adds, or before
+ * any other command so it sees them. {@code l}, {@code d}, {@code e}, {@code snapshot} and {@code stats} work as in
+ * the console ({@code l -ps} is not available, there is nobody to press Enter).
+ * <p>
+ * With {@code continueOnError} a failing command is reported with its line number and skipped.
+ * Otherwise the script stops at the first failure, and groups are atomic: a failing add rolls
+ * back the adds committed with it, so the catalog holds exactly the lines before that group.
+ */
+public class ScriptRunner {
+    private final ConsoleApp console;
+    private final boolean continueOnError;
+    private final int groupSize;
+
+    private final WriteGroup group;
+    private final List<PendingAdd> pending = new ArrayList<>();
+    private long commands;
+    private long failures;
+
+    /** Outcome of a script run. */
+    public record Summary(long commands, long failures, long nanos, boolean stopped) {
+        /** What {@code Main --script} exits with: any failed command (skipped or not) is a failure. */
+        public boolean succeeded() {
+            return failures == 0;
+        }
+
+        public double commandsPerSecond() {
+            return nanos == 0 ? 0 : commands * 1_000_000_000.0 / nanos;
+        }
+
+        public String text() {
+            return String.format(Locale.ROOT, "Script %s: %d commands, %d failed, %.2f s (%.0f commands/s)",
+                    stopped ? "stopped" : "done", commands, failures, nanos / 1e9, commandsPerSecond());
+        }
+    }
+
+    private record PendingAdd(int lineNo, CompletableFuture<?> result) {}
+
+    public ScriptRunner(MovieService service, boolean continueOnError, int groupSize) {
+        if (groupSize < 1) throw new IllegalArgumentException("Group size must be at least 1");
+        this.console = new ConsoleApp(service);
+        this.continueOnError = continueOnError;
+        this.groupSize = groupSize;
+        this.group = service.newWriteGroup(!continueOnError);
+    }
+
+    public Summary run(BufferedReader in) throws IOException {
+        long start = System.nanoTime();
+        boolean stopped = false;
+        int lineNo = 0;
+        String line;
+        while (!stopped && (line = in.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            if (line.equalsIgnoreCase("exit")) break;
+
+            commands++;
+            stopped = !runLine(lineNo, line);
+        }
+        if (!stopped) commitGroup();
+        return new Summary(commands, failures, System.nanoTime() - start, stopped || (failures > 0 && !continueOnError));
+    }
+
+    /** False when the script has to stop. */
+    private boolean runLine(int lineNo, String line) {
+        try {
+            List<String> tokens = CommandTokenizer.tokenize(line);
+            if (isAdd(tokens)) {
+                queueAdd(lineNo, tokens);
+                return pending.size() < groupSize || commitGroup();
+            }
+
+            // everything else must see the adds before it
+            if (!commitGroup()) return false;
+            if (tokens.get(0).equals("l") && ListQueryParser.parse(tokens).pageSize() > 0) {
+                throw new IllegalArgumentException("Bad input format: -ps needs the interactive console");
+            }
+            console.execute(tokens);
+            return true;
+        } catch (Exception e) {
+            if (failed(lineNo, e.getMessage())) return true;
+            discardGroup();
+            return false;
+        }
+    }
+
+    private static boolean isAdd(List<String> tokens) {
+        return tokens.size() >= 2 && tokens.get(0).equals("a");
+    }
+
+    private void queueAdd(int lineNo, List<String> tokens) {
+        CompletableFuture<?> result;
+        try {
+            result = groupAdd(tokens);
+        } catch (IllegalArgumentException e) {
+            if (!continueOnError) throw e;
+            // reported with the rest of the group, so errors come out in line order
+            result = CompletableFuture.failedFuture(e);
+        }
+        pending.add(new PendingAdd(lineNo, result));
+    }
+
+    private CompletableFuture<?> groupAdd(List<String> tokens) {
+        return switch (tokens.get(1)) {
+            case "-p" -> {
+                if (tokens.size() == 2) throw new IllegalArgumentException("Bad input format: use a -p \"Name\" \"Nationality\"");
+                AddCommandParser.NewPerson p = AddCommandParser.parsePerson(tokens);
+                yield group.addPerson(p.name(), p.nationality());
+            }
+            case "-m" -> {
+                AddCommandParser.NewMovie m = AddCommandParser.parseMovie(tokens);
+                yield group.addMovie(m.title(), m.lengthSeconds(), m.directorName(), m.actorNames());
+            }
+            default -> throw new IllegalArgumentException("Bad input format: unknown add switch");
+        };
+    }
+
+    /** Commits the collected adds and reports the failed ones; false when the script has to stop. */
+    private boolean commitGroup() {
+        if (pending.isEmpty()) return true;
+        int firstLine = pending.get(0).lineNo();
+        int lastLine = pending.get(pending.size() - 1).lineNo();
+        try {
+            group.commit();
+        } catch (SQLException | RuntimeException e) {
+            // nothing of the group ran (queued writes couldn't be flushed first)
+            group.discard();
+            pending.clear();
+            boolean carryOn = failed(firstLine, e.getMessage());
+            System.out.println("- Lines " + firstLine + "-" + lastLine + " were rolled back");
+            return carryOn;
+        }
+
+        boolean ok = true;
+        for (PendingAdd add : pending) {
+            Throwable error = failure(add.result());
+            if (error == null || error instanceof RolledBackException) continue;
+            ok = failed(add.lineNo(), error.getMessage());
+        }
+        if (!ok) System.out.println("- Lines " + firstLine + "-" + lastLine + " were rolled back");
+        pending.clear();
+        return ok;
+    }
+
+    /** Stopping with adds not committed yet: they are dropped like a rolled back group. */
+    private void discardGroup() {
+        if (pending.isEmpty()) return;
+        group.discard();
+        System.out.println("- Lines " + pending.get(0).lineNo() + "-" + pending.get(pending.size() - 1).lineNo()
+                + " were rolled back");
+        pending.clear();
+    }
+
+    private static Throwable failure(CompletableFuture<?> result) {
+        try {
+            result.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+    }
+
+    private boolean failed(int lineNo, String message) {
+        failures++;
+        System.out.println("- line " + lineNo + ": " + message);
+        return continueOnError;
+    }
+}
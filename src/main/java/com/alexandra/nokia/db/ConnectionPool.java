@@ -0,0 +1,257 @@
+package com.alexandra.nokia.db;
+
+import com.alexandra.nokia.metrics.Metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded JDBC connection pool.
+ * <p>
+ * At most {@code maxSize} connections are handed out at once; callers wait up to the checkout
+ * timeout for one to come back. Connections are returned by closing them, so repository code
+ * keeps using plain try-with-resources. Idle connections are validated before reuse and a
+ * connection returned in the middle of a transaction is rolled back.
+ * <p>
+ * Each physical connection also keeps a {@link StatementCache}, so the same SQL text is only
+ * parsed and planned once per connection instead of on every repository call.
+ * <p>
+ * Every statement execution on a pooled connection is timed into {@link #metrics()}.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    private final Database database;
+    private final int maxSize;
+    private final long checkoutTimeoutMillis;
+    private final int statementCacheSize;
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+    private final Metrics metrics = new Metrics();
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<IdleConnection> idle = new LinkedBlockingDeque<>();
+    private volatile boolean closed;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    /** @param statementCacheSize prepared statements kept per connection; 0 disables the cache */
+    public ConnectionPool(Database database, int maxSize, long checkoutTimeoutMillis, int statementCacheSize) {
+        if (maxSize < 1) throw new IllegalArgumentException("Pool size must be at least 1");
+        if (statementCacheSize < 0) throw new IllegalArgumentException("Statement cache size must not be negative");
+        this.database = database;
+        this.maxSize = maxSize;
+        this.checkoutTimeoutMillis = checkoutTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(checkoutTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + checkoutTimeoutMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        waitNanos.addAndGet(System.nanoTime() - start);
+        borrows.incrementAndGet();
+
+        try {
+            return wrap(takeHealthyOrCreate());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public PoolStats stats() {
+        long b = borrows.get();
+        return new PoolStats(
+                maxSize,
+                maxSize - permits.availablePermits(),
+                idle.size(),
+                b,
+                timeouts.get(),
+                created.get(),
+                discarded.get(),
+                b == 0 ? 0 : waitNanos.get() / 1_000_000.0 / b
+        );
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    public StatementCacheStats statementCacheStats() {
+        return new StatementCacheStats(
+                statementCacheSize,
+                statementCounters.hits.get(),
+                statementCounters.misses.get(),
+                statementCounters.evictions.get()
+        );
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        IdleConnection ic;
+        while ((ic = idle.pollFirst()) != null) {
+            closeQuietly(ic.physical());
+        }
+    }
+
+    private Physical takeHealthyOrCreate() throws SQLException {
+        IdleConnection ic;
+        while ((ic = idle.pollFirst()) != null) {
+            if (isHealthy(ic)) return ic.physical();
+            discarded.incrementAndGet();
+            closeQuietly(ic.physical());
+        }
+        Connection raw = database.connect();
+        created.incrementAndGet();
+        StatementCache cache = statementCacheSize == 0 ? null : new StatementCache(raw, statementCacheSize, statementCounters, metrics);
+        return new Physical(raw, cache);
+    }
+
+    private boolean isHealthy(IdleConnection ic) {
+        Connection raw = ic.physical().raw();
+        try {
+            if (raw.isClosed()) return false;
+            if (System.currentTimeMillis() - ic.returnedAt() < VALIDATE_AFTER_IDLE_MILLIS) return true;
+            return raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(Physical physical) {
+        Connection raw = physical.raw();
+        try {
+            if (closed || raw.isClosed()) {
+                closeQuietly(physical);
+                return;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            // LIFO keeps the most recently used (warm) connections in play
+            idle.offerFirst(new IdleConnection(physical, System.currentTimeMillis()));
+        } catch (SQLException e) {
+            discarded.incrementAndGet();
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Physical physical) {
+        Connection raw = physical.raw();
+        boolean[] returned = {false};
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            synchronized (returned) {
+                                if (!returned[0]) {
+                                    returned[0] = true;
+                                    release(physical);
+                                }
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return returned[0] || raw.isClosed();
+                        }
+                        case "unwrap" -> {
+                            return ((Class<?>) args[0]).isInstance(proxy) ? proxy : raw.unwrap((Class<?>) args[0]);
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "toString" -> {
+                            return "Pooled[" + raw + "]";
+                        }
+                        default -> {
+                        }
+                    }
+                    if (returned[0]) throw new SQLException("Connection was already returned to the pool");
+                    if (physical.cache() != null && method.getName().equals("prepareStatement")) {
+                        Class<?>[] types = method.getParameterTypes();
+                        if (types.length == 1) {
+                            return physical.cache().prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                        }
+                        if (types.length == 2 && types[1] == int.class) {
+                            return physical.cache().prepare((String) args[0], (Integer) args[1]);
+                        }
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    return timed(result, args);
+                });
+    }
+
+    private Object timed(Object result, Object[] args) {
+        if (result instanceof CallableStatement cs) {
+            return TimedStatements.wrap(cs, CallableStatement.class, (String) args[0], metrics);
+        }
+        if (result instanceof PreparedStatement ps) {
+            return TimedStatements.wrap(ps, PreparedStatement.class, (String) args[0], metrics);
+        }
+        if (result instanceof Statement st) {
+            return TimedStatements.wrap(st, Statement.class, null, metrics);
+        }
+        return result;
+    }
+
+    private static void closeQuietly(Physical physical) {
+        if (physical.cache() != null) physical.cache().closeAll();
+        try {
+            physical.raw().close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private record Physical(Connection raw, StatementCache cache) {}
+
+    private record IdleConnection(Physical physical, long returnedAt) {}
+
+    public record PoolStats(int maxSize, int active, int idle, long borrows, long timeouts,
+                            long created, long discarded, double avgWaitMillis) {}
+
+    public record StatementCacheStats(int maxPerConnection, long hits, long misses, long evictions) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
@@ -3,15 +3,48 @@ package com.alexandra.nokia.db;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Database {
+    public static final String IN_MEMORY_URL = "jdbc:h2:mem:moviedb;DB_CLOSE_DELAY=-1";
+
     private final String url;
+    private final FileStorage storage;
+    private final AtomicBoolean shutDown = new AtomicBoolean();
 
     public Database(String url) {
         this.url = url;
+        this.storage = null;
+    }
+
+    public Database(FileStorage storage) {
+        this.url = storage.url();
+        this.storage = storage;
+    }
+
+    public boolean isPersistent() {
+        return storage != null;
     }
 
     public Connection connect() throws SQLException {
         return DriverManager.getConnection(url);
     }
+
+    public ConnectionPool createPool(int maxSize, long checkoutTimeoutMillis, int statementCacheSize) {
+        return new ConnectionPool(this, maxSize, checkoutTimeoutMillis, statementCacheSize);
+    }
+
+    /**
+     * Closes a file database cleanly: pending writes are flushed and a checkpoint is written, so
+     * the next start opens it without recovery. Safe to call more than once (e.g. from a shutdown
+     * hook too); does nothing for in-memory databases.
+     */
+    public void shutdown() throws SQLException {
+        if (storage == null || !shutDown.compareAndSet(false, true)) return;
+
+        try (Connection conn = connect(); Statement st = conn.createStatement()) {
+            st.execute(storage.compactOnShutdown() ? "SHUTDOWN COMPACT" : "SHUTDOWN");
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.alexandra.nokia.db;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of a file-backed (MVStore) database.
+ *
+ * @param file                  database file; the ".mv.db" suffix is optional
+ * @param cacheSizeMb           page cache of the store
+ * @param writeDelayMillis      how long committed changes may stay in memory before being written
+ * @param maxCompactTimeMillis  time spent compacting the file when the database is closed
+ * @param compactOnShutdown     fully rewrite the file on shutdown ("SHUTDOWN COMPACT"), slower but smallest file
+ */
+public record FileStorage(Path file, int cacheSizeMb, int writeDelayMillis, int maxCompactTimeMillis,
+                          boolean compactOnShutdown) {
+    public static final int DEFAULT_CACHE_SIZE_MB = 64;
+    public static final int DEFAULT_WRITE_DELAY_MILLIS = 500;
+    public static final int DEFAULT_MAX_COMPACT_TIME_MILLIS = 200;
+
+    public FileStorage {
+        if (cacheSizeMb < 1) throw new IllegalArgumentException("Cache size must be at least 1 MB");
+        if (writeDelayMillis < 0) throw new IllegalArgumentException("Write delay must not be negative");
+        if (maxCompactTimeMillis < 0) throw new IllegalArgumentException("Compact time must not be negative");
+    }
+
+    public String url() {
+        String path = file.toAbsolutePath().toString();
+        if (path.endsWith(".mv.db")) path = path.substring(0, path.length() - ".mv.db".length());
+        // DB_CLOSE_ON_EXIT=FALSE: Database.shutdown() closes it (with a checkpoint), not H2's own hook
+        return "jdbc:h2:file:" + path
+                + ";CACHE_SIZE=" + cacheSizeMb * 1024
+                + ";WRITE_DELAY=" + writeDelayMillis
+                + ";MAX_COMPACT_TIME=" + maxCompactTimeMillis
+                + ";DB_CLOSE_ON_EXIT=FALSE";
+    }
+}
@@ -35,6 +35,19 @@ public class Schema {
                   CONSTRAINT fk_ma_actor FOREIGN KEY (actor_id) REFERENCES people(id) ON DELETE CASCADE
                 );
             """);
+
+            // listing filters rewritten to LIKE 'prefix%' / '=' range-scan these
+            // (people.name is already covered by its UNIQUE index)
+            st.execute("CREATE INDEX IF NOT EXISTS idx_movies_title ON movies(title, id)");
+
+            // one index per listing order, so "l -n 10 -ld" reads 10 index entries instead of
+            // sorting the table, and keyset pages start with a range seek
+            st.execute("CREATE INDEX IF NOT EXISTS idx_movies_length_asc ON movies(length_seconds, title, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_movies_length_desc ON movies(length_seconds DESC, title, id)");
+
+            // "movies featuring X" (actor filters, filmographies, co-stars) read the movie ids straight
+            // from this index; H2's own index for fk_ma_actor has actor_id only and goes back to the row
+            st.execute("CREATE INDEX IF NOT EXISTS idx_movie_actors_actor ON movie_actors(actor_id, movie_id)");
         }
     }
 }
@@ -0,0 +1,151 @@
+package com.alexandra.nokia.db;
+
+import com.alexandra.nokia.metrics.Metrics;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * <p>
+ * Callers get a wrapper whose {@code close()} only clears parameters and hands the statement
+ * back, so repository code keeps its usual try-with-resources. If the same SQL is requested
+ * while its statement is still open (nested use), a plain uncached statement is returned.
+ * Counters are shared by all caches of a pool.
+ */
+class StatementCache {
+    private final Connection raw;
+    private final int maxSize;
+    private final Counters counters;
+    private final Metrics metrics;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection raw, int maxSize, Counters counters, Metrics metrics) {
+        this.raw = raw;
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.metrics = metrics;
+    }
+
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys + ":" + sql;
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null && !e.inUse) {
+                e.inUse = true;
+                counters.hits.incrementAndGet();
+                return wrap(e);
+            }
+            if (e != null) {
+                counters.misses.incrementAndGet();
+                return TimedStatements.wrap(raw.prepareStatement(sql, autoGeneratedKeys), PreparedStatement.class, sql, metrics);
+            }
+        }
+
+        counters.misses.incrementAndGet();
+        Entry e = new Entry(key, sql, raw.prepareStatement(sql, autoGeneratedKeys));
+        e.inUse = true;
+        synchronized (this) {
+            entries.put(key, e);
+            evictIfNeeded();
+        }
+        return wrap(e);
+    }
+
+    synchronized void closeAll() {
+        for (Entry e : entries.values()) {
+            closeQuietly(e.statement);
+        }
+        entries.clear();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry e = it.next().getValue();
+            it.remove();
+            e.evicted = true;
+            counters.evictions.incrementAndGet();
+            if (!e.inUse) closeQuietly(e.statement);
+        }
+    }
+
+    private synchronized void release(Entry e) {
+        e.inUse = false;
+        if (e.evicted) {
+            closeQuietly(e.statement);
+            return;
+        }
+        try {
+            e.statement.clearParameters();
+            e.statement.clearBatch();
+        } catch (SQLException ex) {
+            entries.remove(e.key);
+            closeQuietly(e.statement);
+        }
+    }
+
+    private PreparedStatement wrap(Entry e) {
+        boolean[] closed = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                release(e);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return closed[0] || e.statement.isClosed();
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        default -> {
+                        }
+                    }
+                    if (closed[0]) throw new SQLException("Statement is closed");
+                    return TimedStatements.invoke(metrics, e.sql, e.statement, method, args);
+                });
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final String sql;
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+
+        Entry(String key, String sql, PreparedStatement statement) {
+            this.key = key;
+            this.sql = sql;
+            this.statement = statement;
+        }
+    }
+
+    static final class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+    }
+}
@@ -0,0 +1,68 @@
+package com.alexandra.nokia.db;
+
+import com.alexandra.nokia.metrics.Metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** Times the {@code execute*} calls of pooled statements into {@link Metrics}. */
+final class TimedStatements {
+    private TimedStatements() {
+    }
+
+    /**
+     * Calls {@code method} on {@code target}; executions are timed under {@code sql}, or under the
+     * SQL passed to the call itself for plain {@link Statement}s ({@code sql == null}).
+     */
+    static Object invoke(Metrics metrics, String sql, Object target, Method method, Object[] args) throws Throwable {
+        if (!method.getName().startsWith("execute")) return call(target, method, args);
+
+        String text = sql != null ? sql : args != null && args.length > 0 && args[0] instanceof String s ? s : "(batch)";
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = call(target, method, args);
+            failed = false;
+            return result;
+        } finally {
+            metrics.recordStatement(text, System.nanoTime() - start, failed);
+        }
+    }
+
+    /** Wraps a statement the pool hands out without caching it. */
+    static <T extends Statement> T wrap(T statement, Class<T> type, String sql, Metrics metrics) {
+        boolean[] closed = {false};
+        return type.cast(Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> closed[0] = true;
+                        case "isClosed" -> {
+                            return closed[0] || statement.isClosed();
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        default -> {
+                            if (closed[0]) throw new SQLException("Statement is closed");
+                        }
+                    }
+                    return invoke(metrics, sql, statement, method, args);
+                }));
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
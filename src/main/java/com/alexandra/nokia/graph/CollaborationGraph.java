@@ -0,0 +1,340 @@
+package com.alexandra.nokia.graph;
+
+import com.alexandra.nokia.repo.MovieRepository;
+import com.alexandra.nokia.repo.PersonRepository;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Who worked with whom, as a person/movie graph held in primitive arrays: each person slot has
+ * the slots of the movies they direct or act in, each movie slot the slots of its director and
+ * cast. Slots are dense indexes in id order (H2 identity ids only grow), so an id is resolved with
+ * a binary search and no boxed ids are kept.
+ * <p>
+ * {@link #shortestPath} is a bidirectional breadth-first search over people: each side expands
+ * its smaller frontier one level at a time through movies not expanded yet, and stops at the
+ * first person the other side has reached. A big cast is therefore walked once per side, not
+ * once per member.
+ * <p>
+ * Writes ({@code put*}/{@link #removePeople}) are idempotent and wait for a running
+ * {@link #load}, so a write committed while the snapshot is read is applied on top of it.
+ */
+public class CollaborationGraph {
+    private static final int[] NONE = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    private long[] personIds = new long[16];
+    private int[][] moviesOf = new int[16][];
+    private int personCount;
+
+    private long[] movieIds = new long[16];
+    private int[][] membersOf = new int[16][];
+    private int movieCount;
+    private long edges;
+
+    /** People linked by movies: {@code movieIds[i]} has both {@code personIds[i]} and {@code personIds[i + 1]}. */
+    public record Path(long[] personIds, long[] movieIds) {
+        public int steps() {
+            return movieIds.length;
+        }
+    }
+
+    public record Size(int people, int movies, long edges) {}
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Replaces the content; callers read from one snapshot (REPEATABLE_READ) so every id resolves. */
+    public void load(PersonRepository people, MovieRepository movies) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            personIds = new long[16];
+            personCount = 0;
+            movieIds = new long[16];
+            movieCount = 0;
+            edges = 0;
+
+            people.forEachId(id -> {
+                if (personCount == personIds.length) personIds = Arrays.copyOf(personIds, personCount * 2);
+                personIds[personCount++] = id;
+            });
+
+            // edges are collected first so every adjacency array can be allocated at its final size
+            int[][] pairs = {new int[1024], new int[1024]};
+            int[] pairCount = {0};
+            int[][] directorOf = {new int[16]};
+            movies.forEachMovieDirector((movieId, directorId) -> {
+                if (movieCount == movieIds.length) {
+                    movieIds = Arrays.copyOf(movieIds, movieCount * 2);
+                    directorOf[0] = Arrays.copyOf(directorOf[0], movieCount * 2);
+                }
+                int director = personSlot(directorId);
+                movieIds[movieCount] = movieId;
+                directorOf[0][movieCount] = director;
+                addPair(pairs, pairCount, director, movieCount++);
+            });
+            movies.forEachCastPair((movieId, actorId) -> {
+                int movie = movieSlot(movieId);
+                int person = personSlot(actorId);
+                // a director who also acts is one member, not two
+                if (movie >= 0 && person != directorOf[0][movie]) addPair(pairs, pairCount, person, movie);
+            });
+            fill(pairs, pairCount[0]);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addPair(int[][] pairs, int[] count, int person, int movie) {
+        if (person < 0) return;
+        int n = count[0];
+        if (n == pairs[0].length) {
+            pairs[0] = Arrays.copyOf(pairs[0], n * 2);
+            pairs[1] = Arrays.copyOf(pairs[1], n * 2);
+        }
+        pairs[0][n] = person;
+        pairs[1][n] = movie;
+        count[0] = n + 1;
+    }
+
+    private void fill(int[][] pairs, int n) {
+        int[] personDegree = new int[personCount];
+        int[] movieDegree = new int[movieCount];
+        for (int i = 0; i < n; i++) {
+            personDegree[pairs[0][i]]++;
+            movieDegree[pairs[1][i]]++;
+        }
+        moviesOf = new int[Math.max(16, personIds.length)][];
+        membersOf = new int[Math.max(16, movieIds.length)][];
+        for (int p = 0; p < personCount; p++) moviesOf[p] = personDegree[p] == 0 ? NONE : new int[personDegree[p]];
+        for (int m = 0; m < movieCount; m++) membersOf[m] = movieDegree[m] == 0 ? NONE : new int[movieDegree[m]];
+
+        Arrays.fill(personDegree, 0);
+        Arrays.fill(movieDegree, 0);
+        for (int i = 0; i < n; i++) {
+            int p = pairs[0][i];
+            int m = pairs[1][i];
+            moviesOf[p][personDegree[p]++] = m;
+            membersOf[m][movieDegree[m]++] = p;
+        }
+        edges = n;
+    }
+
+    /** False when the id can't be placed (lower than one already known); the caller reloads. */
+    public boolean putPerson(long id) {
+        lock.writeLock().lock();
+        try {
+            return personSlot(id) >= 0 || appendPerson(id) >= 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds the movie (if new) and whichever of its director and actors it doesn't have yet. */
+    public boolean putMovie(long id, long directorId, Collection<Long> actorIds) {
+        lock.writeLock().lock();
+        try {
+            int movie = movieSlot(id);
+            if (movie < 0) {
+                if (movieCount > 0 && id < movieIds[movieCount - 1]) return false;
+                if (movieCount == movieIds.length) {
+                    movieIds = Arrays.copyOf(movieIds, movieCount * 2);
+                    membersOf = Arrays.copyOf(membersOf, movieCount * 2);
+                }
+                movie = movieCount++;
+                movieIds[movie] = id;
+                membersOf[movie] = NONE;
+            }
+            if (!link(directorId, movie)) return false;
+            for (long actorId : actorIds) {
+                if (!link(actorId, movie)) return false;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean link(long personId, int movie) {
+        int person = personSlot(personId);
+        if (person < 0) return false;
+        if (contains(membersOf[movie], person)) return true;
+        membersOf[movie] = append(membersOf[movie], person);
+        moviesOf[person] = append(moviesOf[person], movie);
+        edges++;
+        return true;
+    }
+
+    /** Drops the people's cast links; their slots stay (empty), like deleted rows in the read model. */
+    public void removePeople(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (long id : ids) {
+                int person = personSlot(id);
+                if (person < 0) continue;
+                for (int movie : moviesOf[person]) {
+                    membersOf[movie] = without(membersOf[movie], person);
+                }
+                edges -= moviesOf[person].length;
+                moviesOf[person] = NONE;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Size size() {
+        lock.readLock().lock();
+        try {
+            return new Size(personCount, movieCount, edges);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Fewest movies linking the two people; empty when they aren't connected (or unknown). */
+    public Optional<Path> shortestPath(long fromId, long toId) {
+        lock.readLock().lock();
+        try {
+            int from = personSlot(fromId);
+            int to = personSlot(toId);
+            if (from < 0 || to < 0) return Optional.empty();
+            if (from == to) return Optional.of(new Path(new long[] {fromId}, new long[0]));
+            return Optional.ofNullable(search(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Path search(int from, int to) {
+        Side a = new Side(from, personCount, movieCount);
+        Side b = new Side(to, personCount, movieCount);
+        while (a.size > 0 && b.size > 0) {
+            Side near = a.size <= b.size ? a : b;
+            Side far = near == a ? b : a;
+            int meet = expand(near, far);
+            if (meet >= 0) return path(a, b, meet);
+        }
+        return null;
+    }
+
+    /** One BFS level for {@code side}; returns the first person {@code other} has reached, or -1. */
+    private int expand(Side side, Side other) {
+        int[] next = new int[16];
+        int n = 0;
+        for (int i = 0; i < side.size; i++) {
+            int person = side.frontier[i];
+            for (int movie : moviesOf[person]) {
+                if (side.movieSeen[movie]) continue;
+                side.movieSeen[movie] = true;
+                for (int member : membersOf[movie]) {
+                    if (side.prev[member] != 0) continue;
+                    side.prev[member] = person + 1;
+                    side.via[member] = movie;
+                    if (other.prev[member] != 0) return member;
+                    if (n == next.length) next = Arrays.copyOf(next, n * 2);
+                    next[n++] = member;
+                }
+            }
+        }
+        side.frontier = next;
+        side.size = n;
+        return -1;
+    }
+
+    private Path path(Side a, Side b, int meet) {
+        int stepsA = 0;
+        for (int p = meet; a.prev[p] != p + 1; p = a.prev[p] - 1) stepsA++;
+        int stepsB = 0;
+        for (int p = meet; b.prev[p] != p + 1; p = b.prev[p] - 1) stepsB++;
+
+        long[] people = new long[stepsA + stepsB + 1];
+        long[] movies = new long[stepsA + stepsB];
+        int p = meet;
+        for (int i = stepsA; i > 0; i--) {
+            people[i] = personIds[p];
+            movies[i - 1] = movieIds[a.via[p]];
+            p = a.prev[p] - 1;
+        }
+        people[0] = personIds[p];
+        p = meet;
+        for (int i = stepsA; i < stepsA + stepsB; i++) {
+            movies[i] = movieIds[b.via[p]];
+            p = b.prev[p] - 1;
+            people[i + 1] = personIds[p];
+        }
+        people[stepsA] = personIds[meet];
+        return new Path(people, movies);
+    }
+
+    /** Search state of one direction; {@code prev} holds the previous person's slot + 1 (0 = not reached). */
+    private static final class Side {
+        final int[] prev;
+        final int[] via;
+        final boolean[] movieSeen;
+        int[] frontier;
+        int size;
+
+        Side(int start, int people, int movies) {
+            prev = new int[people];
+            via = new int[people];
+            movieSeen = new boolean[movies];
+            prev[start] = start + 1;
+            frontier = new int[] {start};
+            size = 1;
+        }
+    }
+
+    private int appendPerson(long id) {
+        if (personCount > 0 && id < personIds[personCount - 1]) return -1;
+        if (personCount == personIds.length) {
+            personIds = Arrays.copyOf(personIds, personCount * 2);
+            moviesOf = Arrays.copyOf(moviesOf, personCount * 2);
+        }
+        personIds[personCount] = id;
+        moviesOf[personCount] = NONE;
+        return personCount++;
+    }
+
+    private int personSlot(long id) {
+        int slot = Arrays.binarySearch(personIds, 0, personCount, id);
+        return slot < 0 ? -1 : slot;
+    }
+
+    private int movieSlot(long id) {
+        int slot = Arrays.binarySearch(movieIds, 0, movieCount, id);
+        return slot < 0 ? -1 : slot;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) return true;
+        }
+        return false;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] out = Arrays.copyOf(values, values.length + 1);
+        out[values.length] = value;
+        return out;
+    }
+
+    private static int[] without(int[] values, int value) {
+        int[] out = new int[values.length];
+        int n = 0;
+        for (int v : values) {
+            if (v != value) out[n++] = v;
+        }
+        return n == 0 ? NONE : Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,142 @@
+package com.alexandra.nokia.metrics;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency, row and statement counters for service operations and for every JDBC statement.
+ * <p>
+ * Service code keeps an {@link Operation} handle and brackets each call with
+ * {@code begin()} and one {@code end(start, rows, ok)} in a {@code finally}; the statements run on
+ * the same thread in between are counted for that call. Statement timings are recorded by the
+ * connection pool, keyed by SQL text. Calls slower than the slow-query threshold are logged.
+ */
+public class Metrics {
+    private static final ThreadLocal<ThreadState> THREAD = ThreadLocal.withInitial(ThreadState::new);
+    private static final int MAX_SQL_IN_LOG = 300;
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final Map<String, Operation> statements = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private volatile long slowThresholdNanos = Long.MAX_VALUE;
+    private volatile PrintStream slowLog = System.err;
+
+    public Operation operation(String name) {
+        return operations.computeIfAbsent(name, Operation::new);
+    }
+
+    /** A value read only when a report is taken (pool usage, cache sizes...). */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /** Logs operations and statements taking at least {@code thresholdMillis}; 0 or less turns it off. */
+    public void setSlowQueryLog(long thresholdMillis, PrintStream out) {
+        this.slowLog = out;
+        this.slowThresholdNanos = thresholdMillis <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public void recordStatement(String sql, long nanos, boolean failed) {
+        THREAD.get().statements++;
+        Operation op = statements.get(sql);
+        if (op == null) op = statements.computeIfAbsent(sql, Operation::new);
+        op.record(nanos, 0, 1, failed);
+        if (nanos >= slowThresholdNanos) {
+            logSlow("sql", nanos, abbreviate(sql));
+        }
+    }
+
+    public MetricsReport report() {
+        List<MetricsReport.OperationStats> ops = new ArrayList<>();
+        for (Operation op : operations.values()) {
+            MetricsReport.OperationStats stats = op.stats();
+            if (stats.calls() > 0) ops.add(stats);
+        }
+        ops.sort(Comparator.comparing(MetricsReport.OperationStats::name));
+
+        List<MetricsReport.OperationStats> sql = new ArrayList<>();
+        for (Operation op : statements.values()) sql.add(op.stats());
+        sql.sort(Comparator.comparingLong(MetricsReport.OperationStats::totalNanos).reversed());
+
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, supplier) -> values.put(name, supplier.getAsLong()));
+        return new MetricsReport(Instant.now(), ops, sql, values);
+    }
+
+    private void logSlow(String what, long nanos, String detail) {
+        slowLog.printf("[slow] %s %s %.1f ms %s%n", Instant.now(), what, nanos / 1_000_000.0, detail);
+    }
+
+    static String abbreviate(String sql) {
+        String flat = sql.strip().replaceAll("\\s+", " ");
+        return flat.length() <= MAX_SQL_IN_LOG ? flat : flat.substring(0, MAX_SQL_IN_LOG) + "...";
+    }
+
+    /** Timer for one named operation; cheap enough to call on every request. */
+    public final class Operation {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder statementCount = new LongAdder();
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        public long begin() {
+            THREAD.get().push();
+            return System.nanoTime();
+        }
+
+        /** Meant for a {@code finally} block: exactly one {@code end} per {@code begin}. */
+        public void end(long start, long rowCount, boolean succeeded) {
+            boolean failed = !succeeded;
+            long nanos = System.nanoTime() - start;
+            long stmts = THREAD.get().pop();
+            record(nanos, rowCount, stmts, failed);
+            if (nanos >= slowThresholdNanos) {
+                logSlow(name, nanos, "rows=" + rowCount + " statements=" + stmts + (failed ? " failed" : ""));
+            }
+        }
+
+        private void record(long nanos, long rowCount, long stmts, boolean failed) {
+            latency.record(nanos);
+            rows.add(rowCount);
+            statementCount.add(stmts);
+            if (failed) errors.increment();
+        }
+
+        private MetricsReport.OperationStats stats() {
+            LatencyHistogram.Snapshot s = latency.snapshot();
+            return new MetricsReport.OperationStats(name, s.count(), errors.sum(), rows.sum(), statementCount.sum(),
+                    s.totalNanos(), s.valueAt(0.50), s.valueAt(0.95), s.valueAt(0.99), s.maxNanos());
+        }
+    }
+
+    /** Statements run by this thread, and where each open operation started counting. */
+    private static final class ThreadState {
+        long statements;
+        final long[] marks = new long[16];
+        int depth;
+
+        void push() {
+            if (depth < marks.length) marks[depth] = statements;
+            depth++;
+        }
+
+        long pop() {
+            depth--;
+            return depth < marks.length ? statements - marks[depth] : 0;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.alexandra.nokia.metrics;
+
+import com.alexandra.nokia.util.Json;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/** Point-in-time copy of {@link Metrics}, printable as text (console) or JSON (dump files). */
+public record MetricsReport(Instant takenAt, List<OperationStats> operations, List<OperationStats> statements,
+                           Map<String, Long> gauges) {
+    private static final int TOP_STATEMENTS = 10;
+
+    /** Latency values are in nanoseconds. */
+    public record OperationStats(String name, long calls, long errors, long rows, long statements,
+                                 long totalNanos, long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos) {
+        public double meanMillis() {
+            return calls == 0 ? 0 : totalNanos / 1_000_000.0 / calls;
+        }
+    }
+
+    public String toText() {
+        StringBuilder out = new StringBuilder();
+        out.append("Metrics at ").append(takenAt).append('\n');
+
+        out.append("Operations:\n");
+        out.append(String.format("  %-16s %8s %6s %9s %6s %9s %9s %9s %9s%n",
+                "name", "calls", "errors", "rows", "stmts", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (OperationStats op : operations) {
+            out.append(String.format("  %-16s %8d %6d %9d %6d %9.3f %9.3f %9.3f %9.3f%n",
+                    op.name(), op.calls(), op.errors(), op.rows(), op.statements(),
+                    millis(op.p50Nanos()), millis(op.p95Nanos()), millis(op.p99Nanos()), millis(op.maxNanos())));
+        }
+
+        out.append("SQL (top ").append(TOP_STATEMENTS).append(" by total time):\n");
+        for (OperationStats st : statements.subList(0, Math.min(TOP_STATEMENTS, statements.size()))) {
+            out.append(String.format("  %8d calls %10.1f ms total %9.3f ms p99  %s%n",
+                    st.calls(), millis(st.totalNanos()), millis(st.p99Nanos()), shortSql(st.name())));
+        }
+
+        out.append("Gauges:\n");
+        gauges.forEach((name, value) -> out.append("  ").append(name).append(" = ").append(value).append('\n'));
+        return out.toString();
+    }
+
+    public String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"takenAt\":\"").append(takenAt).append('"');
+        out.append(",\"operations\":");
+        appendJson(out, operations);
+        out.append(",\"statements\":");
+        appendJson(out, statements);
+        out.append(",\"gauges\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> g : gauges.entrySet()) {
+            if (!first) out.append(',');
+            first = false;
+            Json.appendString(out, g.getKey()).append(':').append(g.getValue());
+        }
+        out.append("}}");
+        return out.toString();
+    }
+
+    private static void appendJson(StringBuilder out, List<OperationStats> list) {
+        out.append('[');
+        for (int i = 0; i < list.size(); i++) {
+            OperationStats op = list.get(i);
+            if (i > 0) out.append(',');
+            out.append("{\"name\":");
+            Json.appendString(out, Metrics.abbreviate(op.name()))
+                    .append(",\"calls\":").append(op.calls())
+                    .append(",\"errors\":").append(op.errors())
+                    .append(",\"rows\":").append(op.rows())
+                    .append(",\"statements\":").append(op.statements())
+                    .append(",\"totalNanos\":").append(op.totalNanos())
+                    .append(",\"p50Nanos\":").append(op.p50Nanos())
+                    .append(",\"p95Nanos\":").append(op.p95Nanos())
+                    .append(",\"p99Nanos\":").append(op.p99Nanos())
+                    .append(",\"maxNanos\":").append(op.maxNanos())
+                    .append('}');
+        }
+        out.append(']');
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String shortSql(String sql) {
+        String flat = Metrics.abbreviate(sql);
+        return flat.length() <= 90 ? flat : flat.substring(0, 90) + "...";
+    }
+}
@@ -0,0 +1,58 @@
+package com.alexandra.nokia.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewrites a metrics file every {@code intervalSeconds} (JSON when the name ends in ".json",
+ * text otherwise) and once more on close. The file is replaced atomically, so whatever
+ * scrapes it never reads a partial dump.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private final Metrics metrics;
+    private final Path file;
+    private final boolean json;
+    private final ScheduledExecutorService timer;
+
+    public MetricsReporter(Metrics metrics, Path file, long intervalSeconds) {
+        if (intervalSeconds < 1) throw new IllegalArgumentException("Metrics interval must be at least 1 second");
+        this.metrics = metrics;
+        this.file = file;
+        this.json = file.getFileName().toString().endsWith(".json");
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::writeQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void write() throws IOException {
+        MetricsReport report = metrics.report();
+        String content = json ? report.toJson() + "\n" : report.toText();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, content, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("- Could not write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        writeQuietly();
+    }
+}
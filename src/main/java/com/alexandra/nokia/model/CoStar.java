@@ -0,0 +1,3 @@
+package com.alexandra.nokia.model;
+
+public record CoStar(Person person, int sharedMovies) {}
@@ -0,0 +1,6 @@
+package com.alexandra.nokia.model;
+
+import java.util.List;
+
+/** {@code movies.get(i)} is the movie {@code people.get(i)} and {@code people.get(i + 1)} share. */
+public record CollaborationPath(List<Person> people, List<Movie> movies) {}
@@ -0,0 +1,5 @@
+package com.alexandra.nokia.model;
+
+import java.util.List;
+
+public record Filmography(Person person, List<Movie> directed, List<Movie> acted) {}
@@ -0,0 +1,722 @@
+package com.alexandra.nokia.readmodel;
+
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.model.Movie;
+import com.alexandra.nokia.model.MovieWithActors;
+import com.alexandra.nokia.model.Person;
+import com.alexandra.nokia.repo.MovieRepository;
+import com.alexandra.nokia.repo.PersonRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Column-oriented, in-process copy of the catalog that answers listings without JDBC.
+ * <p>
+ * People and movies live in parallel primitive arrays indexed by a dense "slot" (ids ascending,
+ * which H2 identity columns guarantee for appends). Directors and cast members are stored as
+ * person slots, nationalities and duplicate titles share one String. Three permutation arrays
+ * keep the movie slots in each listing order, so a listing is a walk over one of them and
+ * {@code -n}/keyset pages start with a binary search.
+ * <p>
+ * Listings collect rows in batches under the read lock and hand them to the sink after releasing
+ * it; writes ({@code put*}/{@code remove*}) take the write lock and keep the permutations sorted
+ * with an insert/remove per change.
+ * <p>
+ * Regex filters are compiled once per listing. On large catalogs ({@link ScanOptions}) they are
+ * evaluated by fork-join tasks over consecutive ranges of the permutation, so concatenating the
+ * range results keeps the listing order. Filtered scans stop with {@link QueryTimeoutException}
+ * once they exceed the per-query timeout, including inside a single runaway regex match.
+ */
+public class MovieReadModel {
+    private static final int[] NO_CAST = new int[0];
+    // permutation positions per fork-join leaf task
+    private static final int SCAN_CHUNK = 4096;
+    // rows copied out per read-lock hold before they go to the sink
+    private static final int EMIT_BATCH = 1024;
+    // rough object sizes (64-bit JVM, compressed oops, compact strings)
+    private static final int ARRAY_HEADER = 16;
+    private static final int STRING_OVERHEAD = 24 + ARRAY_HEADER;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScanOptions scan;
+    private volatile boolean loaded;
+
+    // people; a deleted person keeps its slot with a null name
+    private long[] personIds = new long[16];
+    private String[] names = new String[16];
+    private int[] nationalityRefs = new int[16];
+    private int personCount;
+    private final List<String> nationalities = new ArrayList<>();
+    private final Map<String, Integer> nationalityRefByValue = new HashMap<>();
+
+    // movies
+    private long[] movieIds = new long[16];
+    private String[] titles = new String[16];
+    private int[] lengths = new int[16];
+    private int[] directorSlots = new int[16];
+    // actor slots of each movie, sorted by name (the verbose listing order)
+    private int[][] casts = new int[16][];
+    private int movieCount;
+
+    // movie slots in each listing order
+    private int[] byTitle = new int[16];
+    private int[] byLengthAsc = new int[16];
+    private int[] byLengthDesc = new int[16];
+
+    /**
+     * How filtered listings run: in parallel once at least {@code parallelMinMovies} movies are left
+     * to scan ({@code Integer.MAX_VALUE} = never), and aborted after {@code timeoutMillis} (0 = no limit).
+     */
+    public record ScanOptions(int parallelMinMovies, long timeoutMillis) {
+        public static final int DEFAULT_PARALLEL_MIN_MOVIES = 50_000;
+        public static final long DEFAULT_TIMEOUT_MILLIS = 5_000;
+        public static final ScanOptions SEQUENTIAL = new ScanOptions(Integer.MAX_VALUE, 0);
+
+        public ScanOptions {
+            if (parallelMinMovies < 1) throw new IllegalArgumentException("parallelMinMovies must be at least 1");
+            if (timeoutMillis < 0) throw new IllegalArgumentException("timeoutMillis must not be negative");
+        }
+    }
+
+    public MovieReadModel() {
+        this(ScanOptions.SEQUENTIAL);
+    }
+
+    public MovieReadModel(ScanOptions scan) {
+        this.scan = scan;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Stops serving listings until the next {@link #load}. */
+    public void markStale() {
+        loaded = false;
+    }
+
+    /**
+     * Replaces the content with what the repositories return. Callers should read from one
+     * consistent snapshot (a REPEATABLE_READ transaction) so every director and actor id resolves.
+     */
+    public void load(PersonRepository people, MovieRepository movies) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            clear();
+            people.forEachPerson(p -> appendPerson(p.id(), p.name(), p.nationality()));
+
+            Map<String, String> titlePool = new HashMap<>();
+            movies.forEachMovieRow((id, title, lengthSeconds, directorId) -> {
+                int director = personSlot(directorId);
+                if (director < 0) throw new IllegalStateException("Unknown director id " + directorId + " for movie " + id);
+                appendMovie(id, titlePool.computeIfAbsent(title, t -> t), lengthSeconds, director);
+            });
+
+            CastLoader cast = new CastLoader();
+            movies.forEachCastPair(cast::accept);
+            cast.flush();
+
+            for (int i = 0; i < movieCount; i++) {
+                byTitle[i] = i;
+                byLengthAsc[i] = i;
+                byLengthDesc[i] = i;
+            }
+            sort(byTitle, movieCount, this::compareTitle);
+            sort(byLengthAsc, movieCount, this::compareLengthAsc);
+            sort(byLengthDesc, movieCount, this::compareLengthDesc);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Groups the (movie, actor) pairs, which arrive ordered by movie. */
+    private final class CastLoader {
+        int movie = -1;
+        int[] buffer = new int[8];
+        int size;
+
+        void accept(long movieId, long actorId) {
+            int slot = movieSlot(movieId);
+            int actor = personSlot(actorId);
+            if (slot < 0 || actor < 0) return;
+            if (slot != movie) {
+                flush();
+                movie = slot;
+            }
+            if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+            buffer[size++] = actor;
+        }
+
+        void flush() {
+            if (movie >= 0 && size > 0) {
+                int[] cast = Arrays.copyOf(buffer, size);
+                sort(cast, cast.length, (a, b) -> names[a].compareTo(names[b]));
+                casts[movie] = cast;
+            }
+            size = 0;
+        }
+    }
+
+    public long forEachMovie(ListQuery q, Consumer<Movie> sink) {
+        return forEachRow(q, this::movie, sink);
+    }
+
+    public long forEachMovieVerbose(ListQuery q, Consumer<MovieWithActors> sink) {
+        return forEachRow(q, slot -> {
+            int[] cast = casts[slot];
+            List<Person> actors = new ArrayList<>(cast.length);
+            for (int actor : cast) actors.add(person(actor));
+            return new MovieWithActors(movie(slot), actors);
+        }, sink);
+    }
+
+    /**
+     * Runs a listing in batches of about {@link #EMIT_BATCH} rows: each batch is found and copied
+     * out under the read lock, and handed to the sink after the lock is released, so a slow sink
+     * (a pager, an HTTP client) never holds back writes or, behind a queued writer, other readers.
+     * The next batch resumes after the last row of the previous one, as a keyset page would: a
+     * write in between is seen or not, but never shifts the listing.
+     */
+    private <T> long forEachRow(ListQuery q, IntFunction<T> row, Consumer<T> sink) {
+        int limit = q.limit() > 0 ? q.limit() : Integer.MAX_VALUE;
+        ListQuery.After after = q.after();
+        // the timeout counts scanning only, not the time the sink takes
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(scan.timeoutMillis());
+        List<T> batch = new ArrayList<>();
+        long rows = 0;
+        while (rows < limit) {
+            int last;
+            lock.readLock().lock();
+            try {
+                long start = System.nanoTime();
+                Matcher m = new Matcher(q, budgetNanos);
+                last = walk(q.ordering(), after, (int) Math.min(limit - rows, Integer.MAX_VALUE), m,
+                        slot -> batch.add(row.apply(slot)));
+                budgetNanos = Math.max(1, budgetNanos - (System.nanoTime() - start));
+                after = last < 0 ? null : new ListQuery.After(lengths[last], titles[last], movieIds[last]);
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (T t : batch) sink.accept(t);
+            rows += batch.size();
+            if (last < 0) break;
+            batch.clear();
+        }
+        return rows;
+    }
+
+    /**
+     * Collects up to {@code limit} matching slots after {@code after}, stopping once at least
+     * {@link #EMIT_BATCH} are collected. Returns the last collected slot when it stopped for that
+     * reason (there may be more), -1 when the scan or the limit is done.
+     */
+    private int walk(ListQuery.Ordering ordering, ListQuery.After after, int limit, Matcher matcher, SlotSink sink) {
+        int[] order = switch (ordering) {
+            case TITLE_DEFAULT -> byTitle;
+            case LENGTH_ASC -> byLengthAsc;
+            case LENGTH_DESC -> byLengthDesc;
+        };
+        int from = after == null ? 0 : firstAfter(order, ordering, after);
+        if (matcher.filters() && movieCount - from >= scan.parallelMinMovies()) {
+            return parallelWalk(order, from, limit, matcher, sink);
+        }
+
+        int rows = 0;
+        for (int i = from; i < movieCount && rows < limit; i++) {
+            if ((i & (SCAN_CHUNK - 1)) == 0) matcher.checkDeadline();
+            int slot = order[i];
+            if (matcher.matches(slot)) {
+                sink.accept(slot);
+                if (++rows >= EMIT_BATCH && rows < limit && i + 1 < movieCount) return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scans the permutation in waves of one chunk per pool thread: each wave is split by a
+     * {@link ScanTask} and its hits are collected in order before the next wave starts; a batch
+     * ends with the wave that fills it, and a {@code -n} limit stops the scan. The calling thread
+     * holds the read lock for the whole time, so the tasks see stable arrays.
+     */
+    private int parallelWalk(int[] order, int from, int limit, Matcher matcher, SlotSink sink) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int wave = SCAN_CHUNK * Math.max(1, pool.getParallelism());
+        int rows = 0;
+        for (int start = from; start < movieCount && rows < limit; start += wave) {
+            int[] hits = pool.invoke(new ScanTask(order, start, Math.min(movieCount, start + wave), matcher));
+            for (int i = 0; i < hits.length && rows < limit; i++) {
+                sink.accept(hits[i]);
+                rows++;
+            }
+            if (rows >= EMIT_BATCH && rows < limit && start + wave < movieCount) return hits[hits.length - 1];
+        }
+        return -1;
+    }
+
+    /** Matching slots of {@code order[from, to)}, in permutation order. */
+    private final class ScanTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] order;
+        private final int from;
+        private final int to;
+        private final Matcher matcher;
+
+        ScanTask(int[] order, int from, int to, Matcher matcher) {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.matcher = matcher;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= SCAN_CHUNK) {
+                matcher.checkDeadline();
+                int[] hits = new int[16];
+                int n = 0;
+                for (int i = from; i < to; i++) {
+                    int slot = order[i];
+                    if (!matcher.matches(slot)) continue;
+                    if (n == hits.length) hits = Arrays.copyOf(hits, n * 2);
+                    hits[n++] = slot;
+                }
+                return Arrays.copyOf(hits, n);
+            }
+
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(order, from, mid, matcher);
+            left.fork();
+            int[] right = new ScanTask(order, mid, to, matcher).compute();
+            int[] head = left.join();
+            int[] all = Arrays.copyOf(head, head.length + right.length);
+            System.arraycopy(right, 0, all, head.length, right.length);
+            return all;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SlotSink {
+        void accept(int slot);
+    }
+
+    /**
+     * Regex filters with find semantics (like REGEXP_LIKE); person names are tested once per listing.
+     * Shared by the scan tasks: the memo bytes may be written by two threads at once, but always
+     * with the same value, so the worst case is a name tested twice.
+     */
+    private final class Matcher {
+        final Pattern title;
+        final Pattern director;
+        final Pattern actor;
+        // 0 = not tested yet, 1 = match, 2 = no match
+        final byte[] directorMemo;
+        final byte[] actorMemo;
+        // fixed for the batch, so the scan tasks all see the same value
+        final long deadline;
+
+        /** {@code budgetNanos}: scan time left for the listing (ignored without a timeout or filters). */
+        Matcher(ListQuery q, long budgetNanos) {
+            title = q.titleRegex() == null ? null : Pattern.compile(q.titleRegex());
+            director = q.directorRegex() == null ? null : Pattern.compile(q.directorRegex());
+            actor = q.actorRegex() == null ? null : Pattern.compile(q.actorRegex());
+            directorMemo = director == null ? null : new byte[personCount];
+            actorMemo = actor == null ? null : new byte[personCount];
+            deadline = scan.timeoutMillis() == 0 || !filters() ? 0 : System.nanoTime() + budgetNanos;
+        }
+
+        boolean filters() {
+            return title != null || director != null || actor != null;
+        }
+
+        void checkDeadline() {
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                throw new QueryTimeoutException(scan.timeoutMillis());
+            }
+        }
+
+        boolean matches(int slot) {
+            if (title != null && !find(title, titles[slot])) return false;
+            if (director != null && !nameMatches(director, directorMemo, directorSlots[slot])) return false;
+            if (actor != null) {
+                for (int a : casts[slot]) {
+                    if (nameMatches(actor, actorMemo, a)) return true;
+                }
+                return false;
+            }
+            return true;
+        }
+
+        private boolean nameMatches(Pattern p, byte[] memo, int person) {
+            if (memo[person] == 0) memo[person] = find(p, names[person]) ? (byte) 1 : (byte) 2;
+            return memo[person] == 1;
+        }
+
+        private boolean find(Pattern p, String text) {
+            return p.matcher(deadline == 0 ? text : new TimedText(text, this)).find();
+        }
+    }
+
+    /** Text that checks the matcher's deadline every few thousand reads, to stop runaway backtracking. */
+    private static final class TimedText implements CharSequence {
+        private final String text;
+        private final Matcher matcher;
+        private int reads;
+
+        TimedText(String text, Matcher matcher) {
+            this.text = text;
+            this.matcher = matcher;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++reads & 0xFFF) == 0) matcher.checkDeadline();
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /** Adds or updates a person; false when the change can't be applied in place (caller should reload). */
+    public boolean putPerson(long id, String name, String nationality) {
+        lock.writeLock().lock();
+        try {
+            int slot = personSlot(id);
+            if (slot >= 0) {
+                names[slot] = name;
+                nationalityRefs[slot] = nationalityRef(nationality);
+                return true;
+            }
+            if (personCount > 0 && id < personIds[personCount - 1]) return false;
+            appendPerson(id, name, nationality);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes people and their cast entries (people who direct a movie must not be passed in). */
+    public void removePeople(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            boolean[] removed = new boolean[personCount];
+            boolean any = false;
+            for (long id : ids) {
+                int slot = personSlot(id);
+                if (slot >= 0 && names[slot] != null) {
+                    removed[slot] = true;
+                    names[slot] = null;
+                    any = true;
+                }
+            }
+            if (!any) return;
+
+            for (int m = 0; m < movieCount; m++) {
+                int[] cast = casts[m];
+                int kept = 0;
+                for (int a : cast) {
+                    if (!removed[a]) kept++;
+                }
+                if (kept == cast.length) continue;
+
+                int[] next = kept == 0 ? NO_CAST : new int[kept];
+                int i = 0;
+                for (int a : cast) {
+                    if (!removed[a]) next[i++] = a;
+                }
+                casts[m] = next;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mirrors {@code MovieService.addMovie}: inserts the movie, or updates its length, and adds
+     * the actors. Returns false when the change can't be applied in place (caller should reload).
+     */
+    public boolean putMovie(long id, String title, int lengthSeconds, long directorId, Collection<Long> actorIds) {
+        lock.writeLock().lock();
+        try {
+            int director = personSlot(directorId);
+            if (director < 0) return false;
+            int[] actors = new int[actorIds.size()];
+            int n = 0;
+            for (long actorId : actorIds) {
+                int a = personSlot(actorId);
+                if (a < 0 || names[a] == null) return false;
+                actors[n++] = a;
+            }
+
+            int slot = movieSlot(id);
+            if (slot < 0) {
+                if (movieCount > 0 && id < movieIds[movieCount - 1]) return false;
+                slot = appendMovie(id, title, lengthSeconds, director);
+                insertSorted(byTitle, slot, this::compareTitle);
+                insertSorted(byLengthAsc, slot, this::compareLengthAsc);
+                insertSorted(byLengthDesc, slot, this::compareLengthDesc);
+            } else if (lengths[slot] != lengthSeconds) {
+                removeSorted(byLengthAsc, slot, this::compareLengthAsc);
+                removeSorted(byLengthDesc, slot, this::compareLengthDesc);
+                lengths[slot] = lengthSeconds;
+                insertSorted(byLengthAsc, slot, this::compareLengthAsc);
+                insertSorted(byLengthDesc, slot, this::compareLengthDesc);
+            }
+            addToCast(slot, actors);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addToCast(int movie, int[] actors) {
+        int[] cast = casts[movie];
+        for (int a : actors) {
+            int pos = 0;
+            int hi = cast.length;
+            while (pos < hi) {
+                int mid = (pos + hi) >>> 1;
+                if (compareNames(cast[mid], a) < 0) {
+                    pos = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            if (pos < cast.length && cast[pos] == a) continue;
+            int[] next = new int[cast.length + 1];
+            System.arraycopy(cast, 0, next, 0, pos);
+            next[pos] = a;
+            System.arraycopy(cast, pos, next, pos + 1, cast.length - pos);
+            cast = next;
+        }
+        casts[movie] = cast;
+    }
+
+    public Memory memory() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            bytes += ARRAY_HEADER + 8L * personIds.length + ARRAY_HEADER + 4L * names.length + ARRAY_HEADER + 4L * nationalityRefs.length;
+            bytes += ARRAY_HEADER + 8L * movieIds.length + ARRAY_HEADER + 4L * titles.length
+                    + ARRAY_HEADER + 4L * lengths.length + ARRAY_HEADER + 4L * directorSlots.length + ARRAY_HEADER + 4L * casts.length;
+            bytes += 3 * (ARRAY_HEADER + 4L * byTitle.length);
+            for (int i = 0; i < movieCount; i++) {
+                if (casts[i].length > 0) bytes += ARRAY_HEADER + 4L * casts[i].length;
+                // titles shared by several movies are counted once per movie; close enough
+                bytes += STRING_OVERHEAD + titles[i].length();
+            }
+            for (int i = 0; i < personCount; i++) {
+                if (names[i] != null) bytes += STRING_OVERHEAD + names[i].length();
+            }
+            for (String n : nationalities) bytes += STRING_OVERHEAD + n.length();
+            return new Memory(movieCount, personCount, bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Estimated heap use; {@code bytesPerMovie} includes each movie's share of the people columns. */
+    public record Memory(int movies, int people, long bytes) {
+        public long bytesPerMovie() {
+            return movies == 0 ? 0 : bytes / movies;
+        }
+    }
+
+    private Movie movie(int slot) {
+        return new Movie(movieIds[slot], titles[slot], lengths[slot], person(directorSlots[slot]));
+    }
+
+    private Person person(int slot) {
+        return new Person(personIds[slot], names[slot], nationalities.get(nationalityRefs[slot]));
+    }
+
+    private void clear() {
+        personCount = 0;
+        movieCount = 0;
+        nationalities.clear();
+        nationalityRefByValue.clear();
+    }
+
+    private void appendPerson(long id, String name, String nationality) {
+        if (personCount == personIds.length) {
+            int cap = personCount * 2;
+            personIds = Arrays.copyOf(personIds, cap);
+            names = Arrays.copyOf(names, cap);
+            nationalityRefs = Arrays.copyOf(nationalityRefs, cap);
+        }
+        personIds[personCount] = id;
+        names[personCount] = name;
+        nationalityRefs[personCount] = nationalityRef(nationality);
+        personCount++;
+    }
+
+    private int appendMovie(long id, String title, int lengthSeconds, int directorSlot) {
+        if (movieCount == movieIds.length) {
+            int cap = movieCount * 2;
+            movieIds = Arrays.copyOf(movieIds, cap);
+            titles = Arrays.copyOf(titles, cap);
+            lengths = Arrays.copyOf(lengths, cap);
+            directorSlots = Arrays.copyOf(directorSlots, cap);
+            casts = Arrays.copyOf(casts, cap);
+            byTitle = Arrays.copyOf(byTitle, cap);
+            byLengthAsc = Arrays.copyOf(byLengthAsc, cap);
+            byLengthDesc = Arrays.copyOf(byLengthDesc, cap);
+        }
+        int slot = movieCount++;
+        movieIds[slot] = id;
+        titles[slot] = title;
+        lengths[slot] = lengthSeconds;
+        directorSlots[slot] = directorSlot;
+        casts[slot] = NO_CAST;
+        return slot;
+    }
+
+    private int nationalityRef(String nationality) {
+        return nationalityRefByValue.computeIfAbsent(nationality, n -> {
+            nationalities.add(n);
+            return nationalities.size() - 1;
+        });
+    }
+
+    private int personSlot(long id) {
+        return slotOf(personIds, personCount, id);
+    }
+
+    private int movieSlot(long id) {
+        return slotOf(movieIds, movieCount, id);
+    }
+
+    private static int slotOf(long[] ids, int count, long id) {
+        int pos = Arrays.binarySearch(ids, 0, count, id);
+        return pos >= 0 ? pos : -1;
+    }
+
+    // same orderings as the SQL listing (String.compareTo matches H2's default collation)
+    private int compareTitle(int a, int b) {
+        int c = titles[a].compareTo(titles[b]);
+        return c != 0 ? c : Long.compare(movieIds[a], movieIds[b]);
+    }
+
+    private int compareLengthAsc(int a, int b) {
+        int c = Integer.compare(lengths[a], lengths[b]);
+        return c != 0 ? c : compareTitle(a, b);
+    }
+
+    private int compareLengthDesc(int a, int b) {
+        int c = Integer.compare(lengths[b], lengths[a]);
+        return c != 0 ? c : compareTitle(a, b);
+    }
+
+    private int compareNames(int a, int b) {
+        return names[a].compareTo(names[b]);
+    }
+
+    /** Position of the first slot in {@code order} that comes after the keyset cursor. */
+    private int firstAfter(int[] order, ListQuery.Ordering ordering, ListQuery.After after) {
+        int lo = 0;
+        int hi = movieCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareToCursor(order[mid], ordering, after) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int compareToCursor(int slot, ListQuery.Ordering ordering, ListQuery.After after) {
+        int c = switch (ordering) {
+            case TITLE_DEFAULT -> 0;
+            case LENGTH_ASC -> Integer.compare(lengths[slot], after.lengthSeconds());
+            case LENGTH_DESC -> Integer.compare(after.lengthSeconds(), lengths[slot]);
+        };
+        if (c != 0) return c;
+        c = titles[slot].compareTo(after.title());
+        return c != 0 ? c : Long.compare(movieIds[slot], after.movieId());
+    }
+
+    /** Inserts {@code slot} into the sorted first {@code movieCount - 1} entries of {@code order}. */
+    private void insertSorted(int[] order, int slot, IntBinaryOperator cmp) {
+        int size = movieCount - 1;
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cmp.applyAsInt(order[mid], slot) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        System.arraycopy(order, lo, order, lo + 1, size - lo);
+        order[lo] = slot;
+    }
+
+    /** Removes {@code slot} from {@code order}, leaving {@code movieCount - 1} sorted entries. */
+    private void removeSorted(int[] order, int slot, IntBinaryOperator cmp) {
+        int lo = 0;
+        int hi = movieCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cmp.applyAsInt(order[mid], slot) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        System.arraycopy(order, lo + 1, order, lo, movieCount - lo - 1);
+    }
+
+    /** Stable merge sort of {@code a[0..n)} by a comparator on ints (no boxing). */
+    static void sort(int[] a, int n, IntBinaryOperator cmp) {
+        if (n < 2) return;
+        int[] tmp = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, n);
+                if (cmp.applyAsInt(a[mid - 1], a[mid]) <= 0) continue;
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) tmp[k++] = cmp.applyAsInt(a[i], a[j]) <= 0 ? a[i++] : a[j++];
+                while (i < mid) tmp[k++] = a[i++];
+                while (j < hi) tmp[k++] = a[j++];
+                System.arraycopy(tmp, lo, a, lo, hi - lo);
+            }
+        }
+    }
+}
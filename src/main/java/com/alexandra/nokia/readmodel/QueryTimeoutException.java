@@ -0,0 +1,18 @@
+package com.alexandra.nokia.readmodel;
+
+/** A listing ran past its time budget (typically a regex with catastrophic backtracking). */
+public class QueryTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long timeoutMillis;
+
+    // deliberately no (Throwable) constructor: ForkJoinPool then rethrows this instance as is
+    public QueryTimeoutException(long timeoutMillis) {
+        super("Query timed out after " + timeoutMillis + " ms");
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+}
@@ -0,0 +1,17 @@
+package com.alexandra.nokia.repo;
+
+/**
+ * Ids already known to satisfy the regex filters of a {@code ListQuery}, e.g. from the
+ * trigram index. A null array means "not resolved, filter in SQL".
+ */
+public record CandidateIds(long[] titleMovieIds, long[] directorIds, long[] actorIds) {
+    public static final CandidateIds NONE = new CandidateIds(null, null, null);
+
+    public boolean isEmptyResult() {
+        return isEmpty(titleMovieIds) || isEmpty(directorIds) || isEmpty(actorIds);
+    }
+
+    private static boolean isEmpty(long[] ids) {
+        return ids != null && ids.length == 0;
+    }
+}
@@ -1,32 +1,63 @@
 package com.alexandra.nokia.repo;
 
 import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.model.CoStar;
 import com.alexandra.nokia.model.Movie;
 import com.alexandra.nokia.model.MovieWithActors;
 import com.alexandra.nokia.model.Person;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
 
 public class MovieRepository {
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private static final Map<ListShape, String> LIST_SQL = new ConcurrentHashMap<>();
+
     private final Connection conn;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
 
     public MovieRepository(Connection conn) {
         this.conn = conn;
     }
 
-    public Optional<Long> findMovieIdByTitleAndDirector(String title, long directorId) throws SQLException {
-        String sql = "SELECT id FROM movies WHERE title = ? AND director_id = ?";
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) throw new IllegalArgumentException("Fetch size must not be negative");
+        this.fetchSize = fetchSize;
+    }
+
+    public record ExistingMovie(long id, int lengthSeconds) {}
+
+    /**
+     * The movie with this title and director, locked until the transaction ends so the length
+     * read here is still the one being replaced when the caller updates it.
+     */
+    public Optional<ExistingMovie> findMovieForUpdate(String title, long directorId) throws SQLException {
+        String sql = "SELECT id, length_seconds FROM movies WHERE title = ? AND director_id = ? FOR UPDATE";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, title);
             ps.setLong(2, directorId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return Optional.empty();
-                return Optional.of(rs.getLong("id"));
+                return Optional.of(new ExistingMovie(rs.getLong("id"), rs.getInt("length_seconds")));
             }
         }
     }
 
+    public Set<Long> findActorIds(long movieId) throws SQLException {
+        Set<Long> out = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT actor_id FROM movie_actors WHERE movie_id = ?")) {
+            ps.setLong(1, movieId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(rs.getLong(1));
+            }
+        }
+        return out;
+    }
+
     public long insertMovie(String title, int lengthSeconds, long directorId) throws SQLException {
         String sql = "INSERT INTO movies(title, length_seconds, director_id) VALUES (?, ?, ?)";
         try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -49,104 +80,193 @@ public class MovieRepository {
         }
     }
 
-    public void addActorToMovie(long movieId, long actorId) throws SQLException {
+    public void addActorsToMovie(long movieId, Collection<Long> actorIds) throws SQLException {
+        if (actorIds.isEmpty()) return;
 
         String sql = "MERGE INTO movie_actors(movie_id, actor_id) KEY(movie_id, actor_id) VALUES (?, ?)";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, movieId);
-            ps.setLong(2, actorId);
-            ps.executeUpdate();
+            for (long actorId : actorIds) {
+                ps.setLong(1, movieId);
+                ps.setLong(2, actorId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
         }
     }
 
     public List<Movie> listMovies(ListQuery q) throws SQLException {
-        StringBuilder sql = new StringBuilder();
-        sql.append("""
-            SELECT m.id AS movie_id, m.title, m.length_seconds,
-                   d.id AS director_id, d.name AS director_name, d.nationality AS director_nat
-            FROM movies m
-            JOIN people d ON d.id = m.director_id
-        """);
+        List<Movie> out = new ArrayList<>();
+        forEachMovie(q, out::add);
+        return out;
+    }
+
+    /**
+     * Streams the matching movies to {@code sink} while the result set is being read,
+     * so callers can print rows before the query has finished.
+     */
+    public void forEachMovie(ListQuery q, Consumer<Movie> sink) throws SQLException {
+        forEachMovie(q, CandidateIds.NONE, sink);
+    }
 
+    public void forEachMovie(ListQuery q, CandidateIds ids, Consumer<Movie> sink) throws SQLException {
         List<Object> params = new ArrayList<>();
-        List<String> where = new ArrayList<>();
+        String sql = listSql(false, q, ids, params);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindParams(ps, params);
+            ps.setFetchSize(fetchSize);
 
-        if (q.titleRegex() != null) {
-            where.add("REGEXP_LIKE(m.title, ?)");
-            params.add(q.titleRegex());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(readMovie(rs));
+                }
+            }
         }
-        if (q.directorRegex() != null) {
-            where.add("REGEXP_LIKE(d.name, ?)");
-            params.add(q.directorRegex());
+    }
+
+    public void forEachTitle(ObjLongConsumer<String> sink) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.setFetchSize(fetchSize);
+            try (ResultSet rs = st.executeQuery("SELECT id, title FROM movies")) {
+                while (rs.next()) {
+                    sink.accept(rs.getString("title"), rs.getLong("id"));
+                }
+            }
         }
-        if (q.actorRegex() != null) {
-            where.add("""
-                EXISTS (
-                  SELECT 1
-                  FROM movie_actors ma
-                  JOIN people a ON a.id = ma.actor_id
-                  WHERE ma.movie_id = m.id AND REGEXP_LIKE(a.name, ?)
-                )
-            """);
-            params.add(q.actorRegex());
+    }
+
+    /** All movies in id order, without joins (used to load in-memory models). */
+    public void forEachMovieRow(MovieRowConsumer sink) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.setFetchSize(fetchSize);
+            try (ResultSet rs = st.executeQuery("SELECT id, title, length_seconds, director_id FROM movies ORDER BY id")) {
+                while (rs.next()) {
+                    sink.accept(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getLong(4));
+                }
+            }
         }
+    }
 
-        if (!where.isEmpty()) {
-            sql.append(" WHERE ").append(String.join(" AND ", where));
+    /** All (movie_id, actor_id) pairs in primary key order. */
+    public void forEachCastPair(IdPairConsumer sink) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.setFetchSize(fetchSize);
+            try (ResultSet rs = st.executeQuery("SELECT movie_id, actor_id FROM movie_actors ORDER BY movie_id, actor_id")) {
+                while (rs.next()) {
+                    sink.accept(rs.getLong(1), rs.getLong(2));
+                }
+            }
         }
+    }
 
-        if (q.ordering() == ListQuery.Ordering.LENGTH_ASC) {
-            sql.append(" ORDER BY m.length_seconds ASC, m.title ASC");
-        } else if (q.ordering() == ListQuery.Ordering.LENGTH_DESC) {
-            sql.append(" ORDER BY m.length_seconds DESC, m.title ASC");
-        } else {
-            sql.append(" ORDER BY m.title ASC");
+    /** Movie count and total length per director. */
+    public void forEachDirectorTotal(DirectorTotalConsumer sink) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT director_id, COUNT(*), SUM(CAST(length_seconds AS BIGINT)) FROM movies GROUP BY director_id")) {
+            while (rs.next()) {
+                sink.accept(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+            }
         }
+    }
 
-        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
-            for (int i = 0; i < params.size(); i++) {
-                ps.setObject(i + 1, params.get(i));
+    /** Number of movies each actor plays in (actors without any are absent). */
+    public void forEachFilmographySize(IdCountConsumer sink) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT actor_id, COUNT(*) FROM movie_actors GROUP BY actor_id")) {
+            while (rs.next()) {
+                sink.accept(rs.getLong(1), rs.getLong(2));
             }
+        }
+    }
 
-            try (ResultSet rs = ps.executeQuery()) {
-                List<Movie> out = new ArrayList<>();
+    @FunctionalInterface
+    public interface DirectorTotalConsumer {
+        void accept(long directorId, long movies, long totalSeconds);
+    }
+
+    @FunctionalInterface
+    public interface IdCountConsumer {
+        void accept(long id, long count);
+    }
+
+    @FunctionalInterface
+    public interface MovieRowConsumer {
+        void accept(long id, String title, int lengthSeconds, long directorId);
+    }
+
+    @FunctionalInterface
+    public interface IdPairConsumer {
+        void accept(long first, long second);
+    }
+
+    /** (movie id, director id) of every movie, in movie id order. */
+    public void forEachMovieDirector(IdPairConsumer sink) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.setFetchSize(fetchSize);
+            try (ResultSet rs = st.executeQuery("SELECT id, director_id FROM movies ORDER BY id")) {
                 while (rs.next()) {
-                    Person director = new Person(
-                            rs.getLong("director_id"),
-                            rs.getString("director_name"),
-                            rs.getString("director_nat")
-                    );
-                    out.add(new Movie(
-                            rs.getLong("movie_id"),
-                            rs.getString("title"),
-                            rs.getInt("length_seconds"),
-                            director
-                    ));
+                    sink.accept(rs.getLong(1), rs.getLong(2));
                 }
+            }
+        }
+    }
+
+    /** Movies {@code actorId} plays in, by title (a range of the actor_id index, not a scan of the cast table). */
+    public List<Movie> findMoviesWithActor(long actorId) throws SQLException {
+        return findMovies("m.id IN (SELECT ma.movie_id FROM movie_actors ma WHERE ma.actor_id = ?)", actorId);
+    }
+
+    /** Movies directed by {@code directorId}, by title. */
+    public List<Movie> findMoviesByDirector(long directorId) throws SQLException {
+        return findMovies("m.director_id = ?", directorId);
+    }
+
+    public Map<Long, Movie> findMoviesByIds(Collection<Long> ids) throws SQLException {
+        Map<Long, Movie> out = new HashMap<>();
+        if (ids.isEmpty()) return out;
+        for (Movie m : findMovies("m.id = ANY(?)", ids.toArray(new Long[0]))) out.put(m.id(), m);
+        return out;
+    }
+
+    private List<Movie> findMovies(String where, Object param) throws SQLException {
+        String sql = """
+            SELECT m.id AS movie_id, m.title, m.length_seconds,
+                   d.id AS director_id, d.name AS director_name, d.nationality AS director_nat
+            FROM movies m
+            JOIN people d ON d.id = m.director_id
+            WHERE %s
+            ORDER BY m.title ASC, m.id ASC
+        """.formatted(where);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setObject(1, param);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Movie> out = new ArrayList<>();
+                while (rs.next()) out.add(readMovie(rs));
                 return out;
             }
         }
     }
 
-    public List<Person> findActorsForMovie(long movieId) throws SQLException {
+    /** Everyone who acted in a movie with {@code actorId}, most shared movies first. */
+    public List<CoStar> findCoStars(long actorId) throws SQLException {
         String sql = """
-            SELECT p.id, p.name, p.nationality
-            FROM movie_actors ma
-            JOIN people p ON p.id = ma.actor_id
-            WHERE ma.movie_id = ?
-            ORDER BY p.name ASC
+            SELECT p.id, p.name, p.nationality, COUNT(*) AS shared
+            FROM movie_actors mine
+            JOIN movie_actors other ON other.movie_id = mine.movie_id AND other.actor_id <> mine.actor_id
+            JOIN people p ON p.id = other.actor_id
+            WHERE mine.actor_id = ?
+            GROUP BY p.id, p.name, p.nationality
+            ORDER BY shared DESC, p.name ASC
         """;
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, movieId);
+            ps.setLong(1, actorId);
             try (ResultSet rs = ps.executeQuery()) {
-                List<Person> out = new ArrayList<>();
+                List<CoStar> out = new ArrayList<>();
                 while (rs.next()) {
-                    out.add(new Person(
-                            rs.getLong("id"),
-                            rs.getString("name"),
-                            rs.getString("nationality")
-                    ));
+                    out.add(new CoStar(new Person(rs.getLong(1), rs.getString(2), rs.getString(3)), rs.getInt(4)));
                 }
                 return out;
             }
@@ -154,11 +274,227 @@ public class MovieRepository {
     }
 
     public List<MovieWithActors> listMoviesVerbose(ListQuery q) throws SQLException {
-        List<Movie> movies = listMovies(q);
         List<MovieWithActors> out = new ArrayList<>();
-        for (Movie m : movies) {
-            out.add(new MovieWithActors(m, findActorsForMovie(m.id())));
+        forEachMovieVerbose(q, out::add);
+        return out;
+    }
+
+    /**
+     * Streaming variant of {@link #listMoviesVerbose}: each movie is handed to {@code sink}
+     * as soon as its cast group is complete.
+     */
+    public void forEachMovieVerbose(ListQuery q, Consumer<MovieWithActors> sink) throws SQLException {
+        forEachMovieVerbose(q, CandidateIds.NONE, sink);
+    }
+
+    public void forEachMovieVerbose(ListQuery q, CandidateIds ids, Consumer<MovieWithActors> sink) throws SQLException {
+        // one statement for the whole listing: movies are joined with their cast and
+        // rows of the same movie arrive next to each other, so we group them as we read
+        List<Object> params = new ArrayList<>();
+        String sql = listSql(true, q, ids, params);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bindParams(ps, params);
+            ps.setFetchSize(fetchSize);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                Movie current = null;
+                List<Person> actors = null;
+                while (rs.next()) {
+                    long movieId = rs.getLong("movie_id");
+                    if (current == null || current.id() != movieId) {
+                        if (current != null) sink.accept(new MovieWithActors(current, actors));
+                        current = readMovie(rs);
+                        actors = new ArrayList<>();
+                    }
+                    long actorId = rs.getLong("actor_id");
+                    if (!rs.wasNull()) {
+                        actors.add(new Person(actorId, rs.getString("actor_name"), rs.getString("actor_nat")));
+                    }
+                }
+                if (current != null) sink.accept(new MovieWithActors(current, actors));
+            }
+        }
+    }
+
+    /**
+     * Binds the filter parameters into {@code params} and returns the SQL for this query shape.
+     * There are only a handful of shapes (filter kinds x ordering x verbose), so the text is built
+     * once per shape and reused; together with the pool's statement cache the plan is reused too.
+     */
+    private String listSql(boolean verbose, ListQuery q, CandidateIds ids, List<Object> params) {
+        Filter title = filter(q.titleRegex(), ids.titleMovieIds(), params);
+        Filter director = filter(q.directorRegex(), ids.directorIds(), params);
+        Filter actor = filter(q.actorRegex(), ids.actorIds(), params);
+
+        ListQuery.After after = q.after();
+        if (after != null) {
+            switch (q.ordering()) {
+                case TITLE_DEFAULT -> params.addAll(List.of(after.title(), after.movieId()));
+                case LENGTH_ASC -> params.addAll(List.of(after.lengthSeconds(), after.title(), after.movieId()));
+                case LENGTH_DESC -> params.addAll(List.of(after.lengthSeconds(), after.lengthSeconds(),
+                        after.lengthSeconds(), after.title(), after.movieId()));
+            }
+        }
+        if (q.limit() > 0) params.add(q.limit());
+
+        ListShape shape = new ListShape(verbose, title, director, actor, q.ordering(), after != null, q.limit() > 0);
+        return LIST_SQL.computeIfAbsent(shape, MovieRepository::buildListSql);
+    }
+
+    private static Filter filter(String regex, long[] ids, List<Object> params) {
+        if (ids != null) {
+            params.add(boxed(ids));
+            return Filter.IDS;
+        }
+        if (regex == null) return Filter.NONE;
+
+        RegexRewriter.Rewrite r = RegexRewriter.rewrite(regex);
+        params.add(r.param());
+        return Filter.valueOf(r.kind().name());
+    }
+
+    private static String buildListSql(ListShape shape) {
+        // Paged/top-N queries pick the page from "movies" alone first, so H2 can walk the index
+        // matching the ordering and stop after LIMIT rows; people and cast are joined to that page only.
+        boolean paged = shape.seek() || shape.limited();
+        String source = paged ? "(" + pageSql(shape) + ") m" : "movies m";
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("""
+            SELECT m.id AS movie_id, m.title, m.length_seconds,
+                   d.id AS director_id, d.name AS director_name, d.nationality AS director_nat
+        """);
+        if (shape.verbose()) {
+            sql.append("""
+                   , ap.id AS actor_id, ap.name AS actor_name, ap.nationality AS actor_nat
+            """);
         }
+        sql.append(" FROM ").append(source).append(" JOIN people d ON d.id = m.director_id");
+        if (shape.verbose()) {
+            sql.append("""
+                LEFT JOIN movie_actors ca ON ca.movie_id = m.id
+                LEFT JOIN people ap ON ap.id = ca.actor_id
+            """);
+        }
+
+        if (!paged) {
+            List<String> where = filters(shape, "d.name");
+            if (!where.isEmpty()) {
+                sql.append(" WHERE ").append(String.join(" AND ", where));
+            }
+        }
+
+        sql.append(" ORDER BY ").append(orderBy(shape.ordering()));
+        if (shape.verbose()) {
+            sql.append(", ap.name ASC");
+        }
+        return sql.toString();
+    }
+
+    private static String pageSql(ListShape shape) {
+        StringBuilder sql = new StringBuilder("SELECT m.id, m.title, m.length_seconds, m.director_id FROM movies m");
+
+        List<String> where = filters(shape, null);
+        if (shape.seek()) {
+            where.add(switch (shape.ordering()) {
+                case TITLE_DEFAULT -> "(m.title, m.id) > (?, ?)";
+                case LENGTH_ASC -> "(m.length_seconds, m.title, m.id) > (?, ?, ?)";
+                // mixed directions can't be one row comparison; the "<=" bound gives the index a range start
+                case LENGTH_DESC -> "m.length_seconds <= ? AND (m.length_seconds < ? OR "
+                        + "(m.length_seconds = ? AND (m.title, m.id) > (?, ?)))";
+            });
+        }
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+
+        sql.append(" ORDER BY ").append(orderBy(shape.ordering()));
+        if (shape.limited()) {
+            sql.append(" LIMIT ?");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Filter predicates in parameter order. With {@code directorColumn == null} the director
+     * filter is written against {@code m.director_id} only (no join to people needed).
+     */
+    private static List<String> filters(ListShape shape, String directorColumn) {
+        List<String> where = new ArrayList<>();
+
+        if (shape.title() == Filter.IDS) {
+            where.add("m.id = ANY(?)");
+        } else if (shape.title() != Filter.NONE) {
+            where.add(shape.title().sql("m.title"));
+        }
+        if (shape.director() == Filter.IDS) {
+            where.add("m.director_id = ANY(?)");
+        } else if (shape.director() != Filter.NONE) {
+            where.add(directorColumn != null
+                    ? shape.director().sql(directorColumn)
+                    : "m.director_id IN (SELECT p.id FROM people p WHERE " + shape.director().sql("p.name") + ")");
+        }
+        if (shape.actor() == Filter.IDS) {
+            where.add("m.id IN (SELECT ma.movie_id FROM movie_actors ma WHERE ma.actor_id = ANY(?))");
+        } else if (shape.actor() != Filter.NONE) {
+            // uncorrelated: the matching actors are found once (by index when possible)
+            // instead of re-running the filter for every movie's cast
+            where.add("""
+                m.id IN (
+                  SELECT ma.movie_id
+                  FROM movie_actors ma
+                  JOIN people a ON a.id = ma.actor_id
+                  WHERE %s
+                )
+            """.formatted(shape.actor().sql("a.name")));
+        }
+        return where;
+    }
+
+    private static String orderBy(ListQuery.Ordering ordering) {
+        return switch (ordering) {
+            case LENGTH_ASC -> "m.length_seconds ASC, m.title ASC, m.id ASC";
+            case LENGTH_DESC -> "m.length_seconds DESC, m.title ASC, m.id ASC";
+            case TITLE_DEFAULT -> "m.title ASC, m.id ASC";
+        };
+    }
+
+    /** NONE / IDS plus one value per {@link RegexRewriter.Kind}, with the same names. */
+    private enum Filter {
+        NONE, IDS, EQUALS, LIKE, REGEX;
+
+        String sql(String column) {
+            return RegexRewriter.Kind.valueOf(name()).sql(column);
+        }
+    }
+
+    private record ListShape(boolean verbose, Filter title, Filter director, Filter actor,
+                             ListQuery.Ordering ordering, boolean seek, boolean limited) {}
+
+    private static Long[] boxed(long[] ids) {
+        Long[] out = new Long[ids.length];
+        for (int i = 0; i < ids.length; i++) out[i] = ids[i];
         return out;
     }
+
+    private void bindParams(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private Movie readMovie(ResultSet rs) throws SQLException {
+        Person director = new Person(
+                rs.getLong("director_id"),
+                rs.getString("director_name"),
+                rs.getString("director_nat")
+        );
+        return new Movie(
+                rs.getLong("movie_id"),
+                rs.getString("title"),
+                rs.getInt("length_seconds"),
+                director
+        );
+    }
 }
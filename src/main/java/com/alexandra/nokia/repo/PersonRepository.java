@@ -3,7 +3,15 @@ package com.alexandra.nokia.repo;
 import com.alexandra.nokia.model.Person;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.ObjLongConsumer;
 
 public class PersonRepository {
     private final Connection conn;
@@ -27,6 +35,81 @@ public class PersonRepository {
         }
     }
 
+    /** Resolves many exact names in one statement; names that don't exist are simply absent from the map. */
+    public Map<String, Person> findByNamesExact(Collection<String> names) throws SQLException {
+        Map<String, Person> out = new HashMap<>();
+        if (names.isEmpty()) return out;
+
+        String sql = "SELECT id, name, nationality FROM people WHERE name = ANY(?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setObject(1, names.toArray(new String[0]));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Person p = new Person(
+                            rs.getLong("id"),
+                            rs.getString("name"),
+                            rs.getString("nationality")
+                    );
+                    out.put(p.name(), p);
+                }
+            }
+        }
+        return out;
+    }
+
+    public void forEachName(ObjLongConsumer<String> sink) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, name FROM people")) {
+            while (rs.next()) {
+                sink.accept(rs.getString("name"), rs.getLong("id"));
+            }
+        }
+    }
+
+    /** All people in id order. */
+    public void forEachPerson(Consumer<Person> sink) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, name, nationality FROM people ORDER BY id")) {
+            while (rs.next()) {
+                sink.accept(new Person(rs.getLong(1), rs.getString(2), rs.getString(3)));
+            }
+        }
+    }
+
+    /** All person ids, ascending. */
+    public void forEachId(LongConsumer sink) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id FROM people ORDER BY id")) {
+            while (rs.next()) {
+                sink.accept(rs.getLong(1));
+            }
+        }
+    }
+
+    /** Resolves many ids in one statement; ids that don't exist are absent from the map. */
+    public Map<Long, Person> findByIds(Collection<Long> ids) throws SQLException {
+        Map<Long, Person> out = new HashMap<>();
+        if (ids.isEmpty()) return out;
+
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, name, nationality FROM people WHERE id = ANY(?)")) {
+            ps.setObject(1, ids.toArray(new Long[0]));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.put(rs.getLong(1), new Person(rs.getLong(1), rs.getString(2), rs.getString(3)));
+                }
+            }
+        }
+        return out;
+    }
+
+    public long count() throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM people")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
     public Person insert(String name, String nationality) throws SQLException {
         String sql = "INSERT INTO people(name, nationality) VALUES (?, ?)";
         try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -40,29 +123,52 @@ public class PersonRepository {
         }
     }
 
-    public boolean isDirectorInAnyMovie(long personId) throws SQLException {
-        String sql = "SELECT 1 FROM movies WHERE director_id = ? LIMIT 1";
+    /** A person about to be deleted, and whether they direct any movie (which blocks the delete). */
+    public record DeleteCandidate(Person person, boolean director) {}
+
+    /** Resolves exact names and checks director usage for all of them in one statement. */
+    public List<DeleteCandidate> findDeleteCandidates(Collection<String> names) throws SQLException {
+        if (names.isEmpty()) return List.of();
+        return deleteCandidates("p.name = ANY(?)", names.toArray(new String[0]));
+    }
+
+    /** Everyone whose name matches {@code regex} (find semantics, like the listing filters), in name order. */
+    public List<DeleteCandidate> findDeleteCandidatesMatching(String regex) throws SQLException {
+        return deleteCandidates("REGEXP_LIKE(p.name, ?)", regex);
+    }
+
+    private List<DeleteCandidate> deleteCandidates(String where, Object param) throws SQLException {
+        String sql = "SELECT p.id, p.name, p.nationality, "
+                + "EXISTS(SELECT 1 FROM movies m WHERE m.director_id = p.id) AS director "
+                + "FROM people p WHERE " + where + " ORDER BY p.name";
+        List<DeleteCandidate> out = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, personId);
+            ps.setObject(1, param);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next();
+                while (rs.next()) {
+                    Person p = new Person(rs.getLong(1), rs.getString(2), rs.getString(3));
+                    out.add(new DeleteCandidate(p, rs.getBoolean(4)));
+                }
             }
         }
+        return out;
     }
 
-    public void deletePerson(long personId) throws SQLException {
-        // requirement: delete them from starring
-        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM movie_actors WHERE actor_id = ?")) {
-            ps.setLong(1, personId);
+    /**
+     * Deletes the people and their cast rows (requirement: delete them from starring) with one
+     * statement each; callers run it in a transaction. Returns how many people were deleted.
+     */
+    public int deletePeople(Collection<Long> personIds) throws SQLException {
+        if (personIds.isEmpty()) return 0;
+        Long[] ids = personIds.toArray(new Long[0]);
+
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM movie_actors WHERE actor_id = ANY(?)")) {
+            ps.setObject(1, ids);
             ps.executeUpdate();
         }
-
-        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM people WHERE id = ?")) {
-            ps.setLong(1, personId);
-            int changed = ps.executeUpdate();
-            if (changed == 0) {
-                throw new IllegalStateException("Person not found");
-            }
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM people WHERE id = ANY(?)")) {
+            ps.setObject(1, ids);
+            return ps.executeUpdate();
         }
     }
 }
@@ -0,0 +1,98 @@
+package com.alexandra.nokia.repo;
+
+/**
+ * Turns list filters into SQL predicates.
+ * <p>
+ * H2's REGEXP_LIKE is a "find" match evaluated row by row, so no index can help it.
+ * Most filters people type are really plain text though ({@code ^Star.*}, {@code ^Die Hard$},
+ * {@code Spielberg}), and those are rewritten to {@code =} / {@code LIKE} so that anchored
+ * ones can use the indexes on {@code movies.title} and {@code people.name}.
+ * Anything that is a real regex keeps using REGEXP_LIKE.
+ */
+public class RegexRewriter {
+    private static final String META = "\\^$.|?*+()[]{}";
+
+    public enum Kind {
+        EQUALS, LIKE, REGEX;
+
+        public String sql(String column) {
+            return switch (this) {
+                case EQUALS -> column + " = ?";
+                case LIKE -> column + " LIKE ? ESCAPE '\\'";
+                case REGEX -> "REGEXP_LIKE(" + column + ", ?)";
+            };
+        }
+    }
+
+    /** How a filter is evaluated in SQL and the single parameter it binds. */
+    public record Rewrite(Kind kind, String param) {}
+
+    public static Rewrite rewrite(String regex) {
+        Literal lit = parseLiteral(regex);
+        if (lit == null) return new Rewrite(Kind.REGEX, regex);
+        if (lit.anchoredStart && lit.anchoredEnd) return new Rewrite(Kind.EQUALS, lit.text);
+
+        String escaped = escapeLike(lit.text);
+        return new Rewrite(Kind.LIKE, (lit.anchoredStart ? "" : "%") + escaped + (lit.anchoredEnd ? "" : "%"));
+    }
+
+    /**
+     * Accepts {@code [^]literal[.*|$]} where the literal may contain escaped metacharacters.
+     * Returns null for everything else. Note that a trailing {@code $} is read as "end of text";
+     * Java would also accept a single trailing line break, which names and titles never have.
+     */
+    static Literal parseLiteral(String regex) {
+        if (regex == null || regex.isEmpty()) return null;
+
+        int i = 0;
+        int end = regex.length();
+        boolean anchoredStart = regex.charAt(0) == '^';
+        if (anchoredStart) i++;
+
+        boolean anchoredEnd = false;
+        if (regex.endsWith(".*") && !isEscaped(regex, end - 2)) {
+            end -= 2;
+        } else if (regex.endsWith("$") && !isEscaped(regex, end - 1)) {
+            end -= 1;
+            anchoredEnd = true;
+        }
+
+        StringBuilder text = new StringBuilder();
+        while (i < end) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= end) return null;
+                char next = regex.charAt(i + 1);
+                // \d, \w, \Q... are classes or modes, not literals
+                if (Character.isLetterOrDigit(next)) return null;
+                text.append(next);
+                i += 2;
+                continue;
+            }
+            if (META.indexOf(c) >= 0) return null;
+            text.append(c);
+            i++;
+        }
+
+        if (text.isEmpty()) return null;
+        return new Literal(text.toString(), anchoredStart, anchoredEnd);
+    }
+
+    private static boolean isEscaped(String s, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && s.charAt(i) == '\\'; i--) backslashes++;
+        return backslashes % 2 == 1;
+    }
+
+    private static String escapeLike(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 4);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    record Literal(String text, boolean anchoredStart, boolean anchoredEnd) {}
+}
@@ -0,0 +1,241 @@
+package com.alexandra.nokia.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory trigram index over one text column (movie titles or people names).
+ * <p>
+ * A regex filter is reduced to the literal fragments every match must contain; the ids
+ * whose text contains all trigrams of those fragments are the candidates, and only those
+ * are checked with the real {@link Pattern}. Patterns without such fragments (".*", "(?i)x",
+ * alternations...) are not answered here and the caller falls back to SQL.
+ */
+public class TrigramIndex {
+    private final Map<Long, String> texts = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(long id, String text) {
+        lock.writeLock().lock();
+        try {
+            String old = texts.put(id, text);
+            if (old != null) unindex(id, old);
+            for (long tri : trigrams(text)) {
+                postings.computeIfAbsent(tri, k -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            String old = texts.remove(id);
+            if (old != null) unindex(id, old);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            texts.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids (ascending) whose text matches {@code regex} with find semantics,
+     * or null when the pattern has no literal part the index can use.
+     */
+    public long[] search(String regex) {
+        Set<Long> required = new HashSet<>();
+        for (String literal : requiredLiterals(regex)) {
+            for (long tri : trigrams(literal)) required.add(tri);
+        }
+        if (required.isEmpty()) return null;
+
+        Pattern pattern = Pattern.compile(regex);
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            for (long tri : required) {
+                Postings p = postings.get(tri);
+                if (p == null) return new long[0];
+                lists.add(p);
+            }
+            lists.sort(Comparator.comparingInt(p -> p.size));
+
+            long[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                count = lists.get(i).retainIn(candidates, count);
+            }
+
+            int out = 0;
+            for (int i = 0; i < count; i++) {
+                if (pattern.matcher(texts.get(candidates[i])).find()) {
+                    candidates[out++] = candidates[i];
+                }
+            }
+            return Arrays.copyOf(candidates, out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unindex(long id, String text) {
+        for (long tri : trigrams(text)) {
+            Postings p = postings.get(tri);
+            if (p != null && p.remove(id) && p.size == 0) postings.remove(tri);
+        }
+    }
+
+    static Set<Long> trigrams(String s) {
+        Set<Long> out = new HashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            out.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+        }
+        return out;
+    }
+
+    /**
+     * Literal fragments that any match of {@code regex} must contain. Conservative: when in
+     * doubt a fragment is dropped, so the candidate set can only be too big, never too small.
+     */
+    static List<String> requiredLiterals(String regex) {
+        List<String> out = new ArrayList<>();
+        // alternation, inline flags and quoting change what "literal" means; don't guess
+        if (regex.contains("|") || regex.contains("(?") || regex.contains("\\Q")) return out;
+
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+
+            if (c == '\\' && i + 1 < regex.length()) {
+                char next = regex.charAt(i + 1);
+                if (depth == 0 && !Character.isLetterOrDigit(next)) {
+                    run.append(next);
+                } else {
+                    flush(run, out);
+                }
+                i += 2;
+                continue;
+            }
+
+            switch (c) {
+                case '(' -> {
+                    depth++;
+                    flush(run, out);
+                }
+                case ')' -> depth = Math.max(0, depth - 1);
+                case '[' -> {
+                    flush(run, out);
+                    i = skipCharClass(regex, i);
+                }
+                case '?', '*', '{' -> {
+                    // the atom before an optional quantifier may be absent
+                    if (!run.isEmpty()) run.setLength(run.length() - 1);
+                    flush(run, out);
+                    if (c == '{') {
+                        int close = regex.indexOf('}', i);
+                        if (close > 0) i = close;
+                    }
+                }
+                case '+', '.', '^', '$' -> flush(run, out);
+                default -> {
+                    if (depth == 0) run.append(c);
+                }
+            }
+            i++;
+        }
+        flush(run, out);
+        return out;
+    }
+
+    private static void flush(StringBuilder run, List<String> out) {
+        if (run.length() >= 3) out.add(run.toString());
+        run.setLength(0);
+    }
+
+    /**
+     * Index of the {@code ]} closing the class opened at {@code open}. Java classes nest
+     * ({@code [a-z&&[^x]]}, {@code [[abc]]}), so every unescaped {@code [} inside opens another one.
+     */
+    private static int skipCharClass(String regex, int open) {
+        int depth = 0;
+        int i = open;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                i++;
+                if (i < regex.length() && regex.charAt(i) == '^') i++;
+                // a "]" right after the opening bracket is a literal
+                if (i < regex.length() && regex.charAt(i) == ']') i++;
+                continue;
+            }
+            if (c == ']' && --depth == 0) return i;
+            i++;
+        }
+        return i;
+    }
+
+    /** Sorted, growable id list for one trigram. */
+    private static final class Postings {
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) return;
+            pos = -pos - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return false;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        /** Keeps in {@code candidates[0..count)} only ids present here; returns the new count. */
+        int retainIn(long[] candidates, int count) {
+            int out = 0;
+            for (int i = 0; i < count; i++) {
+                if (Arrays.binarySearch(ids, 0, size, candidates[i]) >= 0) {
+                    candidates[out++] = candidates[i];
+                }
+            }
+            return out;
+        }
+    }
+}
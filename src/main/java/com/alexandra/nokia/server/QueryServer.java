@@ -0,0 +1,448 @@
+package com.alexandra.nokia.server;
+
+import com.alexandra.nokia.bulk.SnapshotReport;
+import com.alexandra.nokia.cli.CommandTokenizer;
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.cli.ListQueryParser;
+import com.alexandra.nokia.model.CoStar;
+import com.alexandra.nokia.model.CollaborationPath;
+import com.alexandra.nokia.model.Filmography;
+import com.alexandra.nokia.model.Movie;
+import com.alexandra.nokia.model.MovieWithActors;
+import com.alexandra.nokia.model.Person;
+import com.alexandra.nokia.readmodel.QueryTimeoutException;
+import com.alexandra.nokia.service.CatalogConflictException;
+import com.alexandra.nokia.service.CatalogStats;
+import com.alexandra.nokia.service.MovieService;
+import com.alexandra.nokia.service.PersonNotFoundException;
+import com.alexandra.nokia.service.WriteQueueClosedException;
+import com.alexandra.nokia.util.Json;
+import com.alexandra.nokia.util.TimeUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * HTTP/JSON front end for {@link MovieService}, so many clients can use one catalog at once.
+ * <p>
+ * Requests run on a fixed pool of {@code workers} threads with a bounded queue of
+ * {@code queueCapacity} waiting requests. When both are full the request is answered right away
+ * with 503 and {@code Retry-After}, instead of piling up until clients time out. The HTTP
+ * dispatcher thread only hands exchanges over, so it never blocks on the database.
+ * <p>
+ * Endpoints (parameters in the query string, UTF-8, URL encoded):
+ * <ul>
+ *   <li>{@code GET /movies?q=-t "Die.*" -v} - the switches of the console {@code l} command; a
+ *       listing that fails after rows were sent ends with an {@code {"error":..}} element</li>
+ *   <li>{@code POST /people?name=..&nationality=..}</li>
+ *   <li>{@code POST /movies?title=..&length=hh:mm:ss&director=..&actor=..&actor=..}</li>
+ *   <li>{@code DELETE /people?name=..&name=..} or {@code DELETE /people?regex=..}</li>
+ *   <li>{@code GET /people/filmography?name=..}, {@code GET /people/costars?name=..}</li>
+ *   <li>{@code GET /path?from=..&to=..} - shortest collaboration path</li>
+ *   <li>{@code GET /stats}, {@code GET /stats/catalog}, {@code GET /stats/person?name=..}</li>
+ *   <li>{@code POST /snapshot} - writes a snapshot to the {@code --snapshot} file</li>
+ * </ul>
+ */
+public class QueryServer implements AutoCloseable {
+    private static final int WRITE_BUFFER_SIZE = 1 << 14;
+
+    private final MovieService service;
+    private final HttpServer http;
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public QueryServer(MovieService service, int port, int workerCount, int queueCapacity) throws IOException {
+        if (workerCount < 1) throw new IllegalArgumentException("Server needs at least 1 worker");
+        if (queueCapacity < 0) throw new IllegalArgumentException("Queue capacity must not be negative");
+        this.service = service;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "query-worker-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        this.http = HttpServer.create(new InetSocketAddress(port), 0);
+        http.createContext("/", this::dispatch);
+        // no executor: the dispatcher thread runs dispatch(), which only queues the exchange
+
+        service.metrics().gauge("server.inFlight", inFlight::get);
+        service.metrics().gauge("server.queued", () -> workers.getQueue().size());
+        service.metrics().gauge("server.rejected", rejected::get);
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    /** Stops accepting, lets running requests finish for up to {@code graceSeconds}. */
+    public void stop(int graceSeconds) {
+        http.stop(0);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(graceSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    @Override
+    public void close() {
+        stop(5);
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        try {
+            workers.execute(() -> handle(exchange));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Server busy, try again later");
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+        inFlight.incrementAndGet();
+        try {
+            route(exchange);
+        } catch (PersonNotFoundException e) {
+            sendErrorQuietly(exchange, 404, e.getMessage());
+        } catch (CatalogConflictException e) {
+            sendErrorQuietly(exchange, 409, e.getMessage());
+        } catch (WriteQueueClosedException e) {
+            // shutting down
+            sendErrorQuietly(exchange, 503, e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            sendErrorQuietly(exchange, 400, e.getMessage());
+        } catch (QueryTimeoutException e) {
+            sendErrorQuietly(exchange, 503, e.getMessage());
+        } catch (SQLException e) {
+            sendErrorQuietly(exchange, 500, "Database error: " + e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            // client went away while we were writing; nothing left to answer
+        } catch (RuntimeException e) {
+            sendErrorQuietly(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException, SQLException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, List<String>> params = params(exchange.getRequestURI().getRawQuery());
+
+        switch (method + " " + path) {
+            case "GET /movies" -> listMovies(exchange, params);
+            case "POST /movies" -> addMovie(exchange, params);
+            case "POST /people" -> addPerson(exchange, params);
+            case "DELETE /people" -> deletePeople(exchange, params);
+            case "GET /people/filmography" -> filmography(exchange, params);
+            case "GET /people/costars" -> coStars(exchange, params);
+            case "GET /path" -> collaborationPath(exchange, params);
+            case "GET /stats" -> sendJson(exchange, 200, service.metrics().report().toJson());
+            case "GET /stats/catalog" -> catalogStats(exchange);
+            case "GET /stats/person" -> personStats(exchange, params);
+            case "POST /snapshot" -> snapshot(exchange);
+            default -> sendError(exchange, 404, "Unknown endpoint " + method + " " + path);
+        }
+    }
+
+    private void listMovies(HttpExchange exchange, Map<String, List<String>> params) throws IOException, SQLException {
+        String switches = first(params, "q");
+        ListQuery q = ListQueryParser.parse(CommandTokenizer.tokenize("l " + (switches == null ? "" : switches)));
+
+        // streamed (chunked) like the console listing: rows are written as they are read
+        try (JsonRows rows = new JsonRows(exchange)) {
+            try {
+                if (!q.verbose()) {
+                    service.forEachMovie(q, m -> rows.write(line -> appendMovie(line, m, null)));
+                } else {
+                    service.forEachMovieVerbose(q, mwa -> rows.write(line -> appendMovie(line, mwa.movie(), mwa)));
+                }
+            } catch (IllegalArgumentException | IllegalStateException | QueryTimeoutException | SQLException e) {
+                // before the first row this is still a plain error response (400/503/500)
+                if (!rows.started()) throw e;
+                rows.fail(e.getMessage());
+                return;
+            }
+            rows.finish();
+        }
+    }
+
+    /**
+     * A JSON array written row by row. The 200 status and chunked headers are only sent with the
+     * first row (or the closing bracket), so a listing that fails before producing anything - bad
+     * switches, "Query timed out" from the read model, a database error - is answered with its
+     * proper status. A failure after that can't change the status any more: the array is closed
+     * with a last element {@code {"error":"..."}} so the body is still valid JSON.
+     */
+    private static final class JsonRows implements AutoCloseable {
+        private final HttpExchange exchange;
+        private final StringBuilder line = new StringBuilder(256);
+        private Writer out;
+        private boolean first = true;
+
+        JsonRows(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        boolean started() {
+            return out != null;
+        }
+
+        void write(Consumer<StringBuilder> append) {
+            line.setLength(0);
+            if (!first) line.append(",\n");
+            first = false;
+            append.accept(line);
+            try {
+                start().append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            start().write("]\n");
+        }
+
+        void fail(String message) throws IOException {
+            line.setLength(0);
+            if (!first) line.append(",\n");
+            line.append("{\"error\":");
+            Json.appendString(line, message == null ? "" : message);
+            line.append("}]\n");
+            start().append(line);
+        }
+
+        private Writer start() throws IOException {
+            if (out == null) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+                out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                        WRITE_BUFFER_SIZE);
+                out.write('[');
+            }
+            return out;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) out.close();
+        }
+    }
+
+    private static void appendMovie(StringBuilder line, Movie m, MovieWithActors withActors) {
+        line.append("{\"id\":").append(m.id()).append(",\"title\":");
+        Json.appendString(line, m.title());
+        line.append(",\"length\":\"").append(TimeUtil.formatSecondsToHhMmSs(m.lengthSeconds())).append('"');
+        line.append(",\"director\":");
+        appendPerson(line, m.director());
+        if (withActors != null) {
+            line.append(",\"actors\":[");
+            for (int i = 0; i < withActors.actors().size(); i++) {
+                if (i > 0) line.append(',');
+                appendPerson(line, withActors.actors().get(i));
+            }
+            line.append(']');
+        }
+        line.append('}');
+    }
+
+    private static void appendPerson(StringBuilder line, Person p) {
+        line.append("{\"id\":").append(p.id()).append(",\"name\":");
+        Json.appendString(line, p.name());
+        line.append(",\"nationality\":");
+        Json.appendString(line, p.nationality());
+        line.append('}');
+    }
+
+    private void addPerson(HttpExchange exchange, Map<String, List<String>> params) throws IOException, SQLException {
+        Person p = service.addPerson(required(params, "name"), required(params, "nationality"));
+        StringBuilder json = new StringBuilder();
+        appendPerson(json, p);
+        sendJson(exchange, 201, json.toString());
+    }
+
+    private void addMovie(HttpExchange exchange, Map<String, List<String>> params) throws IOException, SQLException {
+        String title = required(params, "title");
+        int lengthSeconds = TimeUtil.parseHhMmSsToSeconds(required(params, "length"));
+        String director = required(params, "director");
+        List<String> actors = params.getOrDefault("actor", List.of());
+
+        service.addMovie(title, lengthSeconds, director, actors);
+        sendJson(exchange, 201, "{\"saved\":true}");
+    }
+
+    /** {@code name=..} (repeatable) or {@code regex=..}; all or nothing. */
+    private void deletePeople(HttpExchange exchange, Map<String, List<String>> params) throws IOException, SQLException {
+        String regex = first(params, "regex");
+        int deleted;
+        if (regex != null) {
+            deleted = service.deletePeopleMatching(required(params, "regex"));
+        } else {
+            required(params, "name");
+            deleted = service.deletePeopleByExactNames(params.get("name").stream().map(String::trim).toList());
+        }
+        sendJson(exchange, 200, "{\"deleted\":true,\"count\":" + deleted + "}");
+    }
+
+    private void filmography(HttpExchange exchange, Map<String, List<String>> params) throws IOException, SQLException {
+        Filmography f = service.filmography(required(params, "name"));
+        StringBuilder json = new StringBuilder("{\"person\":");
+        appendPerson(json, f.person());
+        appendMovies(json.append(",\"directed\":"), f.directed());
+        appendMovies(json.append(",\"acted\":"), f.acted());
+        sendJson(exchange, 200, json.append('}').toString());
+    }
+
+    private void coStars(HttpExchange exchange, Map<String, List<String>> params) throws IOException, SQLException {
+        List<CoStar> coStars = service.coStars(required(params, "name"));
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < coStars.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"person\":");
+            appendPerson(json, coStars.get(i).person());
+            json.append(",\"sharedMovies\":").append(coStars.get(i).sharedMovies()).append('}');
+        }
+        sendJson(exchange, 200, json.append(']').toString());
+    }
+
+    /** {@code {"steps":2,"people":[...],"movies":[...]}}, or {@code {"steps":null}} when not connected. */
+    private void collaborationPath(HttpExchange exchange, Map<String, List<String>> params) throws IOException, SQLException {
+        Optional<CollaborationPath> found = service.collaborationPath(required(params, "from"), required(params, "to"));
+        if (found.isEmpty()) {
+            sendJson(exchange, 200, "{\"steps\":null}");
+            return;
+        }
+        CollaborationPath path = found.get();
+        StringBuilder json = new StringBuilder("{\"steps\":").append(path.movies().size()).append(",\"people\":[");
+        for (int i = 0; i < path.people().size(); i++) {
+            if (i > 0) json.append(',');
+            appendPerson(json, path.people().get(i));
+        }
+        appendMovies(json.append("],\"movies\":"), path.movies());
+        sendJson(exchange, 200, json.append('}').toString());
+    }
+
+    private static void appendMovies(StringBuilder json, List<Movie> movies) {
+        json.append('[');
+        for (int i = 0; i < movies.size(); i++) {
+            if (i > 0) json.append(',');
+            appendMovie(json, movies.get(i), null);
+        }
+        json.append(']');
+    }
+
+    private void catalogStats(HttpExchange exchange) throws IOException {
+        CatalogStats.CatalogTotals c = service.catalogStats();
+        sendJson(exchange, 200, "{\"movies\":" + c.movies() + ",\"totalSeconds\":" + c.totalSeconds()
+                + ",\"averageSeconds\":" + c.averageSeconds() + ",\"people\":" + c.people() + "}");
+    }
+
+    private void personStats(HttpExchange exchange, Map<String, List<String>> params) throws IOException, SQLException {
+        String name = required(params, "name");
+        CatalogStats.PersonStats p = service.personStats(name);
+        StringBuilder json = new StringBuilder("{\"name\":");
+        Json.appendString(json, name);
+        json.append(",\"directedMovies\":").append(p.directedMovies())
+                .append(",\"directedSeconds\":").append(p.directedSeconds())
+                .append(",\"averageSeconds\":").append(p.averageSeconds())
+                .append(",\"filmographySize\":").append(p.filmographySize()).append('}');
+        sendJson(exchange, 200, json.toString());
+    }
+
+    private void snapshot(HttpExchange exchange) throws IOException, SQLException {
+        SnapshotReport r = service.writeSnapshot();
+        StringBuilder json = new StringBuilder("{\"file\":");
+        Json.appendString(json, r.file().toString());
+        json.append(",\"people\":").append(r.people())
+                .append(",\"movies\":").append(r.movies())
+                .append(",\"castRows\":").append(r.castRows())
+                .append(",\"bytes\":").append(r.bytes())
+                .append(",\"elapsedMillis\":").append(r.elapsedMillis()).append('}');
+        sendJson(exchange, 201, json.toString());
+    }
+
+    private static Map<String, List<String>> params(String rawQuery) {
+        Map<String, List<String>> out = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return out;
+
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            out.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return out;
+    }
+
+    private static String first(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    private static String required(Map<String, List<String>> params, String name) {
+        String v = first(params, name);
+        if (v == null || v.isBlank()) throw new IllegalArgumentException("Bad input format: missing parameter " + name);
+        return v.trim();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (exchange) {
+            sendJson(exchange, status, "{\"error\":" + Json.quote(message == null ? "" : message) + "}");
+        }
+    }
+
+    /** Used when a handler failed; if the response was already started there is nothing left to send. */
+    private static void sendErrorQuietly(HttpExchange exchange, int status, String message) {
+        try {
+            sendError(exchange, status, message);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.repo.MovieRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The pool and the listing fetch size, shared by {@link MovieService} and the collaborators that
+ * read or write the catalog on its behalf, plus the two transaction shapes they all use.
+ */
+final class CatalogAccess {
+    private final ConnectionPool pool;
+    private volatile int listFetchSize = MovieRepository.DEFAULT_FETCH_SIZE;
+
+    CatalogAccess(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    int fetchSize() {
+        return listFetchSize;
+    }
+
+    void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) throw new IllegalArgumentException("Fetch size must not be negative");
+        this.listFetchSize = fetchSize;
+    }
+
+    MovieRepository movies(Connection conn) {
+        MovieRepository repo = new MovieRepository(conn);
+        repo.setFetchSize(listFetchSize);
+        return repo;
+    }
+
+    /** Runs {@code work} in a read-only repeatable-read transaction, i.e. on one consistent snapshot. */
+    <T> T inSnapshot(SqlWork<T> work) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            int isolation = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try {
+                return work.run(conn);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+                conn.setTransactionIsolation(isolation);
+            }
+        }
+    }
+
+    <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+}
@@ -0,0 +1,10 @@
+package com.alexandra.nokia.service;
+
+/** A write that the catalog's current contents don't allow, e.g. deleting someone who directs a movie. */
+public class CatalogConflictException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public CatalogConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,129 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.bulk.CatalogSnapshot;
+import com.alexandra.nokia.bulk.ImportOptions;
+import com.alexandra.nokia.bulk.SnapshotReport;
+import com.alexandra.nokia.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes and restores {@link CatalogSnapshot}s for {@link MovieService}, which flushes queued
+ * writes before calling in. Remembers the catalog version the configured file was written at or
+ * restored from, so an unchanged catalog isn't written again.
+ */
+final class CatalogSnapshots {
+    private final CatalogAccess db;
+    // the service's write counter
+    private final AtomicLong catalogVersion;
+    private final AfterRestore afterRestore;
+    // one snapshot file written at a time (console command, timer, server)
+    private final Object write = new Object();
+    // where a snapshot goes when no file is named (--snapshot); null = none configured
+    private volatile Path file;
+    // catalog version the snapshot file was last written at or restored from (-1 = unknown)
+    private final AtomicLong fileVersion = new AtomicLong(-1);
+    private final Metrics.Operation writeOp;
+    private final Metrics.Operation restoreOp;
+
+    /** Rebuilds what is derived from the tables once a restore has touched them. */
+    @FunctionalInterface
+    interface AfterRestore {
+        void run() throws SQLException;
+    }
+
+    CatalogSnapshots(CatalogAccess db, AtomicLong catalogVersion, Metrics metrics, AfterRestore afterRestore) {
+        this.db = db;
+        this.catalogVersion = catalogVersion;
+        this.afterRestore = afterRestore;
+        this.writeOp = metrics.operation("snapshot.write");
+        this.restoreOp = metrics.operation("snapshot.restore");
+    }
+
+    void setFile(Path file) {
+        this.file = file;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    SnapshotReport write() throws IOException, SQLException {
+        Path target = file;
+        if (target == null) throw new IllegalStateException("No snapshot file configured (start with --snapshot <file>)");
+        return write(target);
+    }
+
+    Optional<SnapshotReport> writeIfChanged() throws IOException, SQLException {
+        synchronized (write) {
+            if (file != null && fileVersion.get() == catalogVersion.get()) return Optional.empty();
+            return Optional.of(write());
+        }
+    }
+
+    SnapshotReport write(Path target) throws IOException, SQLException {
+        synchronized (write) {
+            long start = writeOp.begin();
+            // read before the snapshot: a write racing with it leaves the file marked as behind
+            long version = catalogVersion.get();
+            SnapshotReport report = null;
+            try {
+                report = db.inSnapshot(conn -> {
+                    try {
+                        return new CatalogSnapshot(conn, db.fetchSize(), ImportOptions.DEFAULT).write(target);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (target.equals(file)) fileVersion.set(version);
+                return report;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                writeOp.end(start, report == null ? 0 : report.rows(), report != null);
+            }
+        }
+    }
+
+    SnapshotReport restore(Path source, ImportOptions options) throws IOException, SQLException {
+        long start = restoreOp.begin();
+        SnapshotReport report = null;
+        boolean started = false;
+        try {
+            try (Connection conn = db.getConnection()) {
+                CatalogSnapshot snapshot = new CatalogSnapshot(conn, db.fetchSize(), options);
+                if (!snapshot.isCatalogEmpty()) {
+                    throw new IllegalStateException("Snapshot can only be restored into an empty catalog");
+                }
+                started = true;
+                conn.setAutoCommit(false);
+                try {
+                    report = snapshot.restore(source);
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } finally {
+                restoreOp.end(start, report == null ? 0 : report.rows(), report != null);
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            // a failed restore still touched the tables; a rebuild failure doesn't hide why it failed
+            if (started) {
+                try {
+                    afterRestore.run();
+                } catch (SQLException | RuntimeException rebuild) {
+                    e.addSuppressed(rebuild);
+                }
+            }
+            throw e;
+        }
+        afterRestore.run();
+        if (source.equals(file)) fileVersion.set(catalogVersion.get());
+        return report;
+    }
+}
@@ -0,0 +1,102 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.repo.MovieRepository;
+import com.alexandra.nokia.repo.PersonRepository;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running totals per person (movies directed, their runtime, filmography size) and for the whole
+ * catalog, so a stats lookup is a map read instead of a scan of {@code movies}/{@code movie_actors}.
+ * <p>
+ * Filled once with GROUP BY queries ({@link #load}); after that {@link MovieService} applies what
+ * each committed write changed: a new movie, a new length for an existing one, the cast rows that
+ * were actually added, added and deleted people. Imports reload it.
+ */
+public class CatalogStats {
+    private final Map<Long, Totals> byPerson = new HashMap<>();
+    private long movies;
+    private long totalSeconds;
+    private long people;
+
+    private static final class Totals {
+        int directed;
+        long directedSeconds;
+        int filmography;
+    }
+
+    public record PersonStats(int directedMovies, long directedSeconds, int filmographySize) {
+        public long averageSeconds() {
+            return average(directedSeconds, directedMovies);
+        }
+    }
+
+    public record CatalogTotals(long movies, long totalSeconds, long people) {
+        public long averageSeconds() {
+            return average(totalSeconds, movies);
+        }
+    }
+
+    private static long average(long seconds, long count) {
+        return count == 0 ? 0 : Math.round((double) seconds / count);
+    }
+
+    /** Replaces everything with totals read from the database (callers pass one read snapshot). */
+    synchronized void load(PersonRepository peopleRepo, MovieRepository moviesRepo) throws SQLException {
+        byPerson.clear();
+        movies = 0;
+        totalSeconds = 0;
+        moviesRepo.forEachDirectorTotal((directorId, count, seconds) -> {
+            Totals t = totals(directorId);
+            t.directed = (int) count;
+            t.directedSeconds = seconds;
+            movies += count;
+            totalSeconds += seconds;
+        });
+        moviesRepo.forEachFilmographySize((actorId, count) -> totals(actorId).filmography = (int) count);
+        people = peopleRepo.count();
+    }
+
+    synchronized void movieAdded(long directorId, int lengthSeconds) {
+        Totals t = totals(directorId);
+        t.directed++;
+        t.directedSeconds += lengthSeconds;
+        movies++;
+        totalSeconds += lengthSeconds;
+    }
+
+    synchronized void movieLengthChanged(long directorId, int oldSeconds, int newSeconds) {
+        totals(directorId).directedSeconds += newSeconds - oldSeconds;
+        totalSeconds += newSeconds - oldSeconds;
+    }
+
+    synchronized void castAdded(Collection<Long> actorIds) {
+        for (long actorId : actorIds) totals(actorId).filmography++;
+    }
+
+    synchronized void personAdded() {
+        people++;
+    }
+
+    /** Deleted people never direct, and their cast rows go with them: only their own totals change. */
+    synchronized void peopleDeleted(Collection<Long> personIds) {
+        for (long id : personIds) byPerson.remove(id);
+        people -= personIds.size();
+    }
+
+    public synchronized PersonStats person(long personId) {
+        Totals t = byPerson.get(personId);
+        return t == null ? new PersonStats(0, 0, 0) : new PersonStats(t.directed, t.directedSeconds, t.filmography);
+    }
+
+    public synchronized CatalogTotals catalog() {
+        return new CatalogTotals(movies, totalSeconds, people);
+    }
+
+    private Totals totals(long personId) {
+        return byPerson.computeIfAbsent(personId, k -> new Totals());
+    }
+}
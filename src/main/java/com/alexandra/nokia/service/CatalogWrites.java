@@ -0,0 +1,77 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.db.ConnectionPool;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * The optional {@link WriteBehindQueue} behind {@link MovieService}'s adds, and the glue between
+ * its futures and the synchronous calls: without write-behind an async add runs right away and
+ * returns a completed future, a synchronous add waits for its queued write and rethrows what it
+ * failed with.
+ */
+final class CatalogWrites implements AutoCloseable {
+    private final ConnectionPool pool;
+    // single-writer queue for adds (null = writes run on the caller's thread)
+    private volatile WriteBehindQueue queue;
+
+    CatalogWrites(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    void enableWriteBehind(int capacity, int maxBatch, long windowMillis) {
+        if (queue != null) throw new IllegalStateException("Write-behind is already on");
+        queue = new WriteBehindQueue(pool, capacity, maxBatch, windowMillis);
+    }
+
+    boolean isQueued() {
+        return queue != null;
+    }
+
+    /** Queues {@code work}; only call with write-behind on. */
+    <T> CompletableFuture<T> submit(WriteBatch.Work<T> work, Consumer<T> afterCommit) {
+        return queue.submit(work, afterCommit);
+    }
+
+    /** Waits until every queued write is committed; returns right away without write-behind. */
+    void flush() throws SQLException {
+        WriteBehindQueue q = queue;
+        if (q != null) await(q.flush());
+    }
+
+    /** Drains and stops the queue, if any. */
+    @Override
+    public void close() {
+        WriteBehindQueue q = queue;
+        if (q != null) q.close();
+    }
+
+    /** Runs a synchronous write now and wraps its outcome, for the *Async methods without write-behind. */
+    static <T> CompletableFuture<T> completed(SqlCall<T> write) {
+        try {
+            return CompletableFuture.completedFuture(write.call());
+        } catch (SQLException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Waits for a queued write and rethrows its failure as the synchronous call would have. */
+    static <T> T await(CompletableFuture<T> write) throws SQLException {
+        try {
+            return write.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException rt) throw rt;
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+}
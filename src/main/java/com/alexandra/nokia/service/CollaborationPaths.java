@@ -0,0 +1,105 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.graph.CollaborationGraph;
+import com.alexandra.nokia.metrics.Metrics;
+import com.alexandra.nokia.model.CollaborationPath;
+import com.alexandra.nokia.model.Movie;
+import com.alexandra.nokia.model.Person;
+import com.alexandra.nokia.repo.PersonRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The {@link CollaborationGraph} behind {@link MovieService#collaborationPath}: built from the
+ * catalog on first use, then kept current by the service's committed writes. A write the graph
+ * can't apply in place drops it, and the next query builds it again.
+ */
+final class CollaborationPaths {
+    private final CatalogAccess db;
+    // person/movie adjacency, built on first use (null = not built)
+    private volatile CollaborationGraph graph;
+    private final Object load = new Object();
+    private final Metrics.Operation loadOp;
+
+    CollaborationPaths(CatalogAccess db, Metrics metrics) {
+        this.db = db;
+        this.loadOp = metrics.operation("graph.load");
+        metrics.gauge("graph.edges", () -> {
+            CollaborationGraph g = graph;
+            return g == null ? 0 : g.size().edges();
+        });
+    }
+
+    /** Fewest movies linking the two people, with names and titles; empty when they aren't connected. */
+    Optional<CollaborationPath> find(Person from, Person to) throws SQLException {
+        Optional<CollaborationGraph.Path> path = graph().shortestPath(from.id(), to.id());
+        return path.isPresent() ? Optional.of(resolve(path.get())) : Optional.empty();
+    }
+
+    /** Names and titles for the ids of a path (two queries, whatever its length). */
+    private CollaborationPath resolve(CollaborationGraph.Path path) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            Map<Long, Person> people = new PersonRepository(conn).findByIds(Arrays.stream(path.personIds()).boxed().toList());
+            Map<Long, Movie> movies = db.movies(conn).findMoviesByIds(Arrays.stream(path.movieIds()).boxed().toList());
+            List<Person> peopleOnPath = new ArrayList<>();
+            for (long id : path.personIds()) peopleOnPath.add(require(people.get(id)));
+            List<Movie> moviesOnPath = new ArrayList<>();
+            for (long id : path.movieIds()) moviesOnPath.add(require(movies.get(id)));
+            return new CollaborationPath(peopleOnPath, moviesOnPath);
+        }
+    }
+
+    private static <T> T require(T value) {
+        // deleted between the search and the lookup
+        if (value == null) throw new CatalogConflictException("The catalog changed, try again");
+        return value;
+    }
+
+    private CollaborationGraph graph() throws SQLException {
+        CollaborationGraph g = graph;
+        if (g != null && g.isLoaded()) return g;
+        synchronized (load) {
+            g = graph;
+            if (g != null && g.isLoaded()) return g;
+
+            // published before loading: writes committed meanwhile wait for load() and are applied after it
+            CollaborationGraph fresh = new CollaborationGraph();
+            graph = fresh;
+            long start = loadOp.begin();
+            boolean ok = false;
+            try {
+                db.inSnapshot(conn -> {
+                    fresh.load(new PersonRepository(conn), db.movies(conn));
+                    return null;
+                });
+                ok = true;
+            } finally {
+                loadOp.end(start, ok ? fresh.size().edges() : 0, ok);
+                if (!ok && graph == fresh) graph = null;
+            }
+            return fresh;
+        }
+    }
+
+    /** Applies a committed write to the graph if it is built; when it can't be, the next query rebuilds it. */
+    void sync(Change change) {
+        CollaborationGraph g = graph;
+        if (g != null && !change.apply(g) && graph == g) graph = null;
+    }
+
+    /** After a bulk load: the next query builds the graph from the tables. */
+    void invalidate() {
+        graph = null;
+    }
+
+    @FunctionalInterface
+    interface Change {
+        boolean apply(CollaborationGraph graph);
+    }
+}
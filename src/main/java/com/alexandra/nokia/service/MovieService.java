@@ -1,28 +1,296 @@
 package com.alexandra.nokia.service;
 
+import com.alexandra.nokia.bulk.BulkImporter;
+import com.alexandra.nokia.bulk.CatalogExporter;
+import com.alexandra.nokia.bulk.CatalogSnapshot;
+import com.alexandra.nokia.bulk.ExportFormat;
+import com.alexandra.nokia.bulk.ExportReport;
+import com.alexandra.nokia.bulk.ImportOptions;
+import com.alexandra.nokia.bulk.ImportReport;
+import com.alexandra.nokia.bulk.SnapshotReport;
 import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.metrics.Metrics;
+import com.alexandra.nokia.model.CoStar;
+import com.alexandra.nokia.model.CollaborationPath;
+import com.alexandra.nokia.model.Filmography;
 import com.alexandra.nokia.model.Movie;
 import com.alexandra.nokia.model.MovieWithActors;
 import com.alexandra.nokia.model.Person;
+import com.alexandra.nokia.readmodel.MovieReadModel;
+import com.alexandra.nokia.repo.CandidateIds;
 import com.alexandra.nokia.repo.MovieRepository;
 import com.alexandra.nokia.repo.PersonRepository;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
-public class MovieService {
-    private final PersonRepository people;
-    private final MovieRepository movies;
+/**
+ * Entry point for all catalog operations. Safe to share between threads: every call borrows
+ * its own connection from the pool and builds short-lived repositories on top of it.
+ * Each public operation is timed into the pool's {@link Metrics}.
+ * <p>
+ * With {@link #enableWriteBehind} person/movie adds go through a {@link WriteBehindQueue}: the
+ * {@code *Async} methods return once the write is queued, the plain ones wait for its commit.
+ * Close the service to drain the queue.
+ * <p>
+ * What is derived from the tables lives in package-private collaborators (search indexes, person
+ * and listing caches, read model, stats, collaboration graph, snapshots); this class runs each
+ * operation and, once a write has committed, tells every one of them what changed.
+ */
+public class MovieService implements AutoCloseable {
+    public static final int DEFAULT_PERSON_CACHE_SIZE = 10_000;
+    public static final int DEFAULT_RESULT_CACHE_ROWS = 200_000;
 
-    public MovieService(Connection conn) {
-        this.people = new PersonRepository(conn);
-        this.movies = new MovieRepository(conn);
+    private final ConnectionPool pool;
+    private final CatalogAccess db;
+    private final SearchIndexes searchIndexes;
+    private final PersonLookup personLookup;
+    // bumped by every write; cached listings from an older version are ignored
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final QueryResultCache listCache;
+    private final ReadModelSync readModel;
+    private final CatalogWrites writes;
+    private final CatalogStats stats = new CatalogStats();
+    private final CollaborationPaths paths;
+    private final CatalogSnapshots snapshots;
+
+    private final Metrics metrics;
+    private final Metrics.Operation addPersonOp;
+    private final Metrics.Operation findPersonOp;
+    private final Metrics.Operation deletePersonOp;
+    private final Metrics.Operation addMovieOp;
+    private final Metrics.Operation listOp;
+    private final Metrics.Operation listVerboseOp;
+    private final Metrics.Operation importOp;
+    private final Metrics.Operation exportOp;
+    private final Metrics.Operation writeGroupOp;
+    private final Metrics.Operation loadStatsOp;
+    private final Metrics.Operation filmographyOp;
+    private final Metrics.Operation coStarsOp;
+    private final Metrics.Operation pathOp;
+
+    public MovieService(ConnectionPool pool) {
+        this(pool, DEFAULT_PERSON_CACHE_SIZE, DEFAULT_RESULT_CACHE_ROWS);
+    }
+
+    public MovieService(ConnectionPool pool, int personCacheSize, int resultCacheRows) {
+        this.pool = pool;
+        this.db = new CatalogAccess(pool);
+        this.metrics = pool.metrics();
+        this.addPersonOp = metrics.operation("person.add");
+        this.findPersonOp = metrics.operation("person.find");
+        this.deletePersonOp = metrics.operation("person.delete");
+        this.addMovieOp = metrics.operation("movie.add");
+        this.listOp = metrics.operation("list");
+        this.listVerboseOp = metrics.operation("list.verbose");
+        this.importOp = metrics.operation("import");
+        this.exportOp = metrics.operation("export");
+        this.writeGroupOp = metrics.operation("writeGroup.commit");
+        this.loadStatsOp = metrics.operation("stats.load");
+        this.filmographyOp = metrics.operation("person.filmography");
+        this.coStarsOp = metrics.operation("person.coStars");
+        this.pathOp = metrics.operation("graph.path");
+
+        this.searchIndexes = new SearchIndexes(db, metrics);
+        this.personLookup = new PersonLookup(db, personCacheSize, metrics);
+        this.listCache = new QueryResultCache(resultCacheRows);
+        this.readModel = new ReadModelSync(db, metrics);
+        this.writes = new CatalogWrites(pool);
+        this.paths = new CollaborationPaths(db, metrics);
+        // a warm start shouldn't wait for the search index (it takes about as long as the restore)
+        this.snapshots = new CatalogSnapshots(db, catalogVersion, metrics, () -> catalogReplaced(false));
+        registerGauges();
+    }
+
+    private void registerGauges() {
+        metrics.gauge("catalog.version", catalogVersion::get);
+        metrics.gauge("pool.active", () -> pool.stats().active());
+        metrics.gauge("pool.idle", () -> pool.stats().idle());
+        metrics.gauge("pool.timeouts", () -> pool.stats().timeouts());
+        metrics.gauge("statementCache.hits", () -> pool.statementCacheStats().hits());
+        metrics.gauge("statementCache.misses", () -> pool.statementCacheStats().misses());
+        metrics.gauge("listCache.hits", () -> listCache.stats().hits());
+        metrics.gauge("listCache.misses", () -> listCache.stats().misses());
+        metrics.gauge("listCache.rows", () -> listCache.stats().rows());
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /** Loads the trigram indexes from the database; until then filters go straight to SQL. */
+    public void rebuildSearchIndex() throws SQLException {
+        searchIndexes.rebuild();
+    }
+
+    /**
+     * Same as {@link #rebuildSearchIndex()} on a background thread, so a large catalog is usable
+     * right away; filters are answered by SQL alone until the index is ready.
+     */
+    public CompletableFuture<Void> rebuildSearchIndexInBackground() {
+        return searchIndexes.rebuildInBackground();
+    }
+
+    /**
+     * Loads the in-memory read model; from then on listings are served from it and every write
+     * here keeps it in sync. Imports reload it. {@code scan} decides when filtered listings run
+     * in parallel and how long they may take.
+     */
+    public void enableReadModel(MovieReadModel.ScanOptions scan) throws SQLException {
+        readModel.enable(scan);
+    }
+
+    /**
+     * Computes the per-person and catalog totals behind {@link #personStats}/{@link #catalogStats};
+     * from then on writes keep them current. Call before the catalog takes writes.
+     */
+    public void loadStats() throws SQLException {
+        long start = loadStatsOp.begin();
+        boolean ok = false;
+        try {
+            db.inSnapshot(conn -> {
+                stats.load(new PersonRepository(conn), db.movies(conn));
+                return null;
+            });
+            ok = true;
+        } finally {
+            loadStatsOp.end(start, ok ? stats.catalog().movies() : 0, ok);
+        }
+    }
+
+    /** Movies directed (count, total and average length) and filmography size of one person. */
+    public CatalogStats.PersonStats personStats(String exactName) throws SQLException {
+        Person p = findPersonExact(exactName).orElseThrow(() -> new PersonNotFoundException("Person not found"));
+        return stats.person(p.id());
+    }
+
+    public CatalogStats.CatalogTotals catalogStats() {
+        return stats.catalog();
+    }
+
+    /** Movies the person directed and movies they act in, each by title. */
+    public Filmography filmography(String exactName) throws SQLException {
+        long start = filmographyOp.begin();
+        Filmography result = null;
+        try {
+            Person p = findPersonExact(exactName).orElseThrow(() -> new PersonNotFoundException("Person not found"));
+            try (Connection conn = pool.getConnection()) {
+                MovieRepository movies = db.movies(conn);
+                result = new Filmography(p, movies.findMoviesByDirector(p.id()), movies.findMoviesWithActor(p.id()));
+            }
+            return result;
+        } finally {
+            filmographyOp.end(start, result == null ? 0 : result.directed().size() + result.acted().size(), result != null);
+        }
+    }
+
+    /** People who acted in a movie with this actor, most shared movies first. */
+    public List<CoStar> coStars(String exactName) throws SQLException {
+        long start = coStarsOp.begin();
+        List<CoStar> result = null;
+        try {
+            Person p = findPersonExact(exactName).orElseThrow(() -> new PersonNotFoundException("Person not found"));
+            try (Connection conn = pool.getConnection()) {
+                result = db.movies(conn).findCoStars(p.id());
+            }
+            return result;
+        } finally {
+            coStarsOp.end(start, result == null ? 0 : result.size(), result != null);
+        }
+    }
+
+    /**
+     * Fewest movies (as director or actor) linking two people, e.g. A acted in X with B, who
+     * directed Y with C in the cast. Empty when they aren't connected. Runs on the in-memory
+     * {@link com.alexandra.nokia.graph.CollaborationGraph}, which is built from the catalog on first use.
+     */
+    public Optional<CollaborationPath> collaborationPath(String fromName, String toName) throws SQLException {
+        long start = pathOp.begin();
+        boolean ok = false;
+        int steps = 0;
+        try {
+            Person from = findPersonExact(fromName).orElseThrow(() -> new PersonNotFoundException("Person not found: \"" + fromName + "\""));
+            Person to = findPersonExact(toName).orElseThrow(() -> new PersonNotFoundException("Person not found: \"" + toName + "\""));
+            Optional<CollaborationPath> result = paths.find(from, to);
+            steps = result.map(path -> path.movies().size()).orElse(0);
+            ok = true;
+            return result;
+        } finally {
+            pathOp.end(start, steps, ok);
+        }
     }
+
+    /**
+     * Queues person/movie adds for a single writer thread that commits them in batches of up to
+     * {@code maxBatch}, collected for at most {@code windowMillis}. {@code capacity} bounds the queue.
+     */
+    public void enableWriteBehind(int capacity, int maxBatch, long windowMillis) {
+        writes.enableWriteBehind(capacity, maxBatch, windowMillis);
+    }
+
+    /** Waits until every queued write is committed; returns right away without write-behind. */
+    public void flushWrites() throws SQLException {
+        writes.flush();
+    }
+
+    /** Drains and stops the write-behind queue, if any. */
+    @Override
+    public void close() {
+        writes.close();
+    }
+
     public Person addPerson(String name, String nationality) throws SQLException {
+        long start = addPersonOp.begin();
+        boolean ok = false;
+        try {
+            Person p;
+            if (writes.isQueued()) {
+                p = CatalogWrites.await(addPersonAsync(name, nationality));
+            } else {
+                try (Connection conn = pool.getConnection()) {
+                    p = insertPerson(conn, name, nationality);
+                }
+                personAdded(p);
+            }
+            ok = true;
+            return p;
+        } finally {
+            addPersonOp.end(start, ok ? 1 : 0, ok);
+        }
+    }
+
+    /**
+     * Queues the insert when write-behind is on (completes after commit, or with the same
+     * exception {@link #addPerson} would throw); otherwise runs it right away.
+     */
+    public CompletableFuture<Person> addPersonAsync(String name, String nationality) {
+        if (!writes.isQueued()) return CatalogWrites.completed(() -> addPerson(name, nationality));
+        return writes.submit(personInsert(name, nationality), this::personAdded);
+    }
+
+    /** The insert {@link #addPerson} runs, for a {@link WriteBatch}. */
+    WriteBatch.Work<Person> personInsert(String name, String nationality) {
+        return conn -> insertPerson(conn, name, nationality);
+    }
+
+    private Person insertPerson(Connection conn, String name, String nationality) throws SQLException {
         try {
-            return people.insert(name, nationality);
+            return new PersonRepository(conn).insert(name, nationality);
         } catch (SQLException e) {
             // H2 duplicate key often contains "Unique index or primary key violation"
             if (e.getMessage() != null && e.getMessage().toLowerCase().contains("unique")) {
@@ -32,48 +300,432 @@ public class MovieService {
         }
     }
 
+    void personAdded(Person p) {
+        personLookup.invalidate(p.name());
+        searchIndexes.personAdded(p.id(), p.name());
+        catalogVersion.incrementAndGet();
+        stats.personAdded();
+        paths.sync(g -> g.putPerson(p.id()));
+        readModel.sync(model -> model.putPerson(p.id(), p.name(), p.nationality()));
+    }
+
     public Optional<Person> findPersonExact(String name) throws SQLException {
-        return people.findByNameExact(name);
+        long start = findPersonOp.begin();
+        Optional<Person> result = null;
+        try {
+            result = personLookup.find(name);
+            return result;
+        } finally {
+            findPersonOp.end(start, result != null && result.isPresent() ? 1 : 0, result != null);
+        }
     }
 
+    /**
+     * Adds (or updates, same title + director) a movie and its cast in one transaction:
+     * director and actors are resolved with a single query and the cast rows are batched.
+     */
     public void addMovie(String title, int lengthSeconds, String directorName, List<String> actorNames) throws SQLException {
-        Person director = people.findByNameExact(directorName)
-                .orElseThrow(() -> new IllegalArgumentException("We could not find \"" + directorName + "\""));
+        long start = addMovieOp.begin();
+        boolean ok = false;
+        try {
+            if (writes.isQueued()) {
+                CatalogWrites.await(addMovieAsync(title, lengthSeconds, directorName, actorNames));
+            } else {
+                movieAdded(db.inTransaction(conn -> addMovie(new PersonRepository(conn), db.movies(conn),
+                        title, lengthSeconds, directorName, actorNames, true)));
+            }
+            ok = true;
+        } finally {
+            addMovieOp.end(start, ok ? 1 + actorNames.size() : 0, ok);
+        }
+    }
+
+    /** Like {@link #addPersonAsync}, for {@link #addMovie}. */
+    public CompletableFuture<Void> addMovieAsync(String title, int lengthSeconds, String directorName, List<String> actorNames) {
+        if (!writes.isQueued()) {
+            return CatalogWrites.completed(() -> {
+                addMovie(title, lengthSeconds, directorName, actorNames);
+                return null;
+            });
+        }
+        return writes.submit(batchedMovie(title, lengthSeconds, directorName, actorNames), this::movieAdded)
+                .thenApply(added -> null);
+    }
+
+    /**
+     * A movie add for a {@link WriteBatch}: people added earlier in the same batch aren't committed
+     * yet, so they are looked up on the batch's own connection rather than through the cache.
+     */
+    WriteBatch.Work<AddedMovie> batchedMovie(String title, int lengthSeconds, String directorName, List<String> actorNames) {
+        List<String> actors = List.copyOf(actorNames);
+        return conn -> addMovie(new PersonRepository(conn), db.movies(conn), title, lengthSeconds, directorName, actors, false);
+    }
+
+    /**
+     * Starts a group of adds that the caller commits in one transaction with {@link WriteGroup#commit()}.
+     * In an {@code atomic} group the first failing add rolls back the whole group; otherwise
+     * only that add is skipped.
+     */
+    public WriteGroup newWriteGroup(boolean atomic) {
+        return new WriteGroup(this, pool, writeGroupOp, atomic);
+    }
+
+    void movieAdded(AddedMovie added) {
+        if (added.inserted()) {
+            searchIndexes.movieAdded(added.movieId(), added.title());
+            stats.movieAdded(added.directorId(), added.lengthSeconds());
+        } else {
+            stats.movieLengthChanged(added.directorId(), added.previousLength(), added.lengthSeconds());
+        }
+        stats.castAdded(added.newActorIds());
+        paths.sync(g -> g.putMovie(added.movieId(), added.directorId(), added.newActorIds()));
+        catalogVersion.incrementAndGet();
+        readModel.sync(model -> model.putMovie(added.movieId(), added.title(), added.lengthSeconds(),
+                added.directorId(), added.actorIds()));
+    }
+
+    private AddedMovie addMovie(PersonRepository people, MovieRepository movies, String title, int lengthSeconds,
+                                String directorName, List<String> actorNames, boolean useCache) throws SQLException {
+        Set<String> names = new LinkedHashSet<>();
+        names.add(directorName);
+        names.addAll(actorNames);
+        Map<String, Person> found = useCache ? personLookup.find(people, names) : people.findByNamesExact(names);
+
+        Person director = found.get(directorName);
+        if (director == null) throw new IllegalArgumentException("We could not find \"" + directorName + "\"");
+
+        Set<Long> actorIds = new LinkedHashSet<>();
+        for (String actorName : actorNames) {
+            Person actor = found.get(actorName);
+            if (actor == null) throw new IllegalArgumentException("We could not find \"" + actorName + "\"");
+            actorIds.add(actor.id());
+        }
 
         // Same title + same director => same movie record
-        Optional<Long> existingId = movies.findMovieIdByTitleAndDirector(title, director.id());
+        Optional<MovieRepository.ExistingMovie> existing = movies.findMovieForUpdate(title, director.id());
         long movieId;
+        int previousLength = 0;
+        Set<Long> newActorIds = actorIds;
 
-        if (existingId.isPresent()) {
-            movieId = existingId.get();
+        if (existing.isPresent()) {
+            movieId = existing.get().id();
+            previousLength = existing.get().lengthSeconds();
             movies.updateMovieLength(movieId, lengthSeconds);
+            // only cast rows that don't exist yet grow a filmography
+            newActorIds = new LinkedHashSet<>(actorIds);
+            newActorIds.removeAll(movies.findActorIds(movieId));
         } else {
             movieId = movies.insertMovie(title, lengthSeconds, director.id());
         }
 
-        for (String actorName : actorNames) {
-            Person actor = people.findByNameExact(actorName)
-                    .orElseThrow(() -> new IllegalArgumentException("We could not find \"" + actorName + "\""));
-            movies.addActorToMovie(movieId, actor.id());
+        movies.addActorsToMovie(movieId, newActorIds);
+        return new AddedMovie(movieId, existing.isEmpty(), title, lengthSeconds, previousLength,
+                director.id(), actorIds, newActorIds);
+    }
+
+    /** What an add changed; {@code previousLength} is only meaningful for an update. */
+    record AddedMovie(long movieId, boolean inserted, String title, int lengthSeconds, int previousLength,
+                      long directorId, Set<Long> actorIds, Set<Long> newActorIds) {}
+
+    /**
+     * Bulk-loads catalog files (any of them may be null) in the order people, movies, cast.
+     * Commits happen every {@code options.commitSize()} rows; the search index is rebuilt once at the end.
+     */
+    public List<ImportReport> importFiles(Path peopleFile, Path moviesFile, Path castFile, ImportOptions options)
+            throws IOException, SQLException {
+        flushWrites();
+        long start = importOp.begin();
+        List<ImportReport> reports = new ArrayList<>();
+        boolean ok = false;
+        try {
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    BulkImporter importer = new BulkImporter(conn, options);
+                    if (peopleFile != null) reports.add(importer.importPeople(peopleFile));
+                    if (moviesFile != null) reports.add(importer.importMovies(moviesFile));
+                    if (castFile != null) reports.add(importer.importCast(castFile));
+                    ok = true;
+                } catch (IOException | SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } finally {
+                importOp.end(start, reports.stream().mapToLong(ImportReport::rowsWritten).sum(), ok);
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            // earlier commits are in the tables, so rebuild anyway; a rebuild failure doesn't hide why the import failed
+            try {
+                catalogReplaced(true);
+            } catch (SQLException | RuntimeException rebuild) {
+                e.addSuppressed(rebuild);
+            }
+            throw e;
+        }
+        catalogReplaced(true);
+        return reports;
+    }
+
+    /**
+     * Everything derived from the tables is rebuilt after a bulk load (whether it finished or not).
+     * Without {@code waitForSearchIndex} the index is built on a background thread; listings use
+     * plain SQL until it is ready.
+     */
+    private void catalogReplaced(boolean waitForSearchIndex) throws SQLException {
+        personLookup.clear();
+        catalogVersion.incrementAndGet();
+        if (waitForSearchIndex) {
+            rebuildSearchIndex();
+        } else {
+            rebuildSearchIndexInBackground();
+        }
+        readModel.reload();
+        loadStats();
+        paths.invalidate();
+    }
+
+    public void setSnapshotFile(Path file) {
+        snapshots.setFile(file);
+    }
+
+    public Path snapshotFile() {
+        return snapshots.file();
+    }
+
+    /** {@link #writeSnapshot(Path)} to the configured snapshot file. */
+    public SnapshotReport writeSnapshot() throws IOException, SQLException {
+        flushWrites();
+        return snapshots.write();
+    }
+
+    /** {@link #writeSnapshot()} unless the catalog hasn't changed since the file was written or restored. */
+    public Optional<SnapshotReport> writeSnapshotIfChanged() throws IOException, SQLException {
+        flushWrites();
+        return snapshots.writeIfChanged();
+    }
+
+    /** Writes a {@link CatalogSnapshot} of the committed catalog (queued writes are flushed first). */
+    public SnapshotReport writeSnapshot(Path file) throws IOException, SQLException {
+        flushWrites();
+        return snapshots.write(file);
+    }
+
+    /**
+     * Loads a snapshot into the empty catalog with its original ids, then reloads stats and read
+     * model as after an import; the search index is rebuilt in the background. A failed restore
+     * leaves the catalog empty.
+     */
+    public SnapshotReport restoreSnapshot(Path file, ImportOptions options) throws IOException, SQLException {
+        flushWrites();
+        return snapshots.restore(file, options);
+    }
+
+    /** Writes people, movies and cast files into {@code dir} from one consistent read transaction. */
+    public List<ExportReport> exportCatalog(Path dir, ExportFormat format) throws IOException, SQLException {
+        flushWrites();
+        long start = exportOp.begin();
+        List<ExportReport> reports = new ArrayList<>();
+        boolean ok = false;
+        try (Connection conn = pool.getConnection()) {
+            int isolation = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try {
+                CatalogExporter exporter = new CatalogExporter(conn, db.fetchSize());
+                reports.add(exporter.exportPeople(dir, format));
+                reports.add(exporter.exportMovies(dir, format));
+                reports.add(exporter.exportCast(dir, format));
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+                conn.setTransactionIsolation(isolation);
+            }
+            ok = true;
+        } finally {
+            exportOp.end(start, reports.stream().mapToLong(ExportReport::rows).sum(), ok);
         }
+        return reports;
     }
 
     public List<Movie> listMovies(ListQuery q) throws SQLException {
-        return movies.listMovies(q);
+        List<Movie> out = new ArrayList<>();
+        forEachMovie(q, out::add);
+        return out;
     }
 
     public List<MovieWithActors> listMoviesVerbose(ListQuery q) throws SQLException {
-        return movies.listMoviesVerbose(q);
+        List<MovieWithActors> out = new ArrayList<>();
+        forEachMovieVerbose(q, out::add);
+        return out;
+    }
+
+    public void forEachMovie(ListQuery q, Consumer<Movie> sink) throws SQLException {
+        long start = listOp.begin();
+        long rows = 0;
+        boolean ok = false;
+        try {
+            MovieReadModel model = readModel.loaded();
+            rows = model != null
+                    ? model.forEachMovie(q, sink)
+                    : cachedListing(q, sink, (repo, ids, out) -> repo.forEachMovie(q, ids, out));
+            ok = true;
+        } finally {
+            listOp.end(start, rows, ok);
+        }
+    }
+
+    public void forEachMovieVerbose(ListQuery q, Consumer<MovieWithActors> sink) throws SQLException {
+        long start = listVerboseOp.begin();
+        long rows = 0;
+        boolean ok = false;
+        try {
+            MovieReadModel model = readModel.loaded();
+            rows = model != null
+                    ? model.forEachMovieVerbose(q, sink)
+                    : cachedListing(q, sink, (repo, ids, out) -> repo.forEachMovieVerbose(q, ids, out));
+            ok = true;
+        } finally {
+            listVerboseOp.end(start, rows, ok);
+        }
+    }
+
+    /** Listing from the cache, or from SQL narrowed by the search index when it isn't cached. */
+    private <T> long cachedListing(ListQuery q, Consumer<T> sink, Listing<T> listing) throws SQLException {
+        return listCache.forEach(q, catalogVersion.get(), sink, out -> {
+            CandidateIds ids = searchIndexes.candidates(q);
+            if (ids.isEmptyResult()) return;
+            try (Connection conn = db.getConnection()) {
+                listing.run(db.movies(conn), ids, out);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Listing<T> {
+        void run(MovieRepository repo, CandidateIds ids, Consumer<T> sink) throws SQLException;
+    }
+
+    public void setListFetchSize(int fetchSize) {
+        db.setFetchSize(fetchSize);
     }
 
     public void deletePersonByExactName(String exactName) throws SQLException {
-        Person p = people.findByNameExact(exactName)
-                .orElseThrow(() -> new IllegalStateException("Person not found"));
+        deletePeopleByExactNames(List.of(exactName));
+    }
+
+    /**
+     * Deletes all the named people in one transaction, or none of them: a name that doesn't exist
+     * or a person who directs a movie fails the whole call. Returns how many were deleted.
+     */
+    public int deletePeopleByExactNames(Collection<String> names) throws SQLException {
+        Set<String> wanted = new LinkedHashSet<>(names);
+        return deletePeople(people -> {
+            List<PersonRepository.DeleteCandidate> found = people.findDeleteCandidates(wanted);
+            if (found.size() < wanted.size()) {
+                if (wanted.size() == 1) throw new PersonNotFoundException("Person not found");
+                Set<String> missing = new LinkedHashSet<>(wanted);
+                for (PersonRepository.DeleteCandidate c : found) missing.remove(c.person().name());
+                throw new PersonNotFoundException("Person not found: " + preview(missing));
+            }
+            return found;
+        });
+    }
 
-        if (people.isDirectorInAnyMovie(p.id())) {
-            throw new IllegalStateException("Cannot delete person: they is a director in at least one movie");
+    /** Same as {@link #deletePeopleByExactNames} for everyone whose name matches {@code regex}. */
+    public int deletePeopleMatching(String regex) throws SQLException {
+        try {
+            Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Bad input format: corrupted regex");
         }
+        return deletePeople(people -> {
+            List<PersonRepository.DeleteCandidate> found = people.findDeleteCandidatesMatching(regex);
+            if (found.isEmpty()) throw new PersonNotFoundException("Nobody matches \"" + regex + "\"");
+            return found;
+        });
+    }
 
-        people.deletePerson(p.id());
+    /**
+     * Lookup with director check (one query), then set-based deletes of cast rows and people, all
+     * in one transaction: a failure leaves nothing half deleted.
+     */
+    private int deletePeople(DeleteLookup lookup) throws SQLException {
+        long start = deletePersonOp.begin();
+        List<Person> deleted = List.of();
+        boolean ok = false;
+        try {
+            // a queued movie may still make one of them a director
+            flushWrites();
+            deleted = db.inTransaction(conn -> {
+                PersonRepository people = new PersonRepository(conn);
+                List<PersonRepository.DeleteCandidate> candidates = lookup.find(people);
+
+                List<String> directors = new ArrayList<>();
+                List<Person> victims = new ArrayList<>(candidates.size());
+                for (PersonRepository.DeleteCandidate c : candidates) {
+                    if (c.director()) directors.add(c.person().name());
+                    victims.add(c.person());
+                }
+                if (!directors.isEmpty()) {
+                    throw new CatalogConflictException(candidates.size() == 1
+                            ? "Cannot delete person: they is a director in at least one movie"
+                            : "Cannot delete: " + directors.size() + " of them direct at least one movie: " + preview(directors));
+                }
+
+                // the lookup takes no lock: a delete running alongside may have removed some of them
+                int removed = people.deletePeople(victims.stream().map(Person::id).toList());
+                if (removed != victims.size()) {
+                    if (victims.size() == 1) throw new PersonNotFoundException("Person not found");
+                    throw new CatalogConflictException("The catalog changed, try again");
+                }
+                return victims;
+            });
+            peopleDeleted(deleted);
+            ok = true;
+            return deleted.size();
+        } finally {
+            deletePersonOp.end(start, deleted.size(), ok);
+        }
+    }
+
+    private void peopleDeleted(List<Person> deleted) {
+        List<Long> ids = new ArrayList<>(deleted.size());
+        for (Person p : deleted) {
+            personLookup.invalidate(p.name());
+            searchIndexes.personRemoved(p.id());
+            ids.add(p.id());
+        }
+        stats.peopleDeleted(ids);
+        paths.sync(g -> {
+            g.removePeople(ids);
+            return true;
+        });
+        catalogVersion.incrementAndGet();
+        readModel.sync(model -> {
+            model.removePeople(ids);
+            return true;
+        });
+    }
+
+    @FunctionalInterface
+    private interface DeleteLookup {
+        List<PersonRepository.DeleteCandidate> find(PersonRepository people) throws SQLException;
+    }
+
+    /** The first few names, quoted, for error messages about large sets. */
+    private static String preview(Collection<String> names) {
+        StringBuilder out = new StringBuilder();
+        int shown = 0;
+        for (String name : names) {
+            if (shown == 5) {
+                out.append(", ... (").append(names.size() - shown).append(" more)");
+                break;
+            }
+            if (shown++ > 0) out.append(", ");
+            out.append('"').append(name).append('"');
+        }
+        return out.toString();
     }
 }
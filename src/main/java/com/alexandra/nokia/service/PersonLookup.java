@@ -0,0 +1,77 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.metrics.Metrics;
+import com.alexandra.nokia.model.Person;
+import com.alexandra.nokia.repo.PersonRepository;
+import com.alexandra.nokia.util.LruCache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Exact-name person lookups through an {@link LruCache}, which also remembers names that don't
+ * exist. {@link MovieService} invalidates a name when its person is added or deleted and clears
+ * everything after a bulk load; a lookup racing with either doesn't put its result back.
+ */
+final class PersonLookup {
+    private final CatalogAccess db;
+    // exact name -> person (or empty when the name is known not to exist)
+    private final LruCache<String, Optional<Person>> cache;
+
+    PersonLookup(CatalogAccess db, int cacheSize, Metrics metrics) {
+        this.db = db;
+        this.cache = new LruCache<>(cacheSize);
+        metrics.gauge("personCache.hits", () -> cache.stats().hits());
+        metrics.gauge("personCache.misses", () -> cache.stats().misses());
+    }
+
+    Optional<Person> find(String name) throws SQLException {
+        Optional<Person> result = cache.get(name);
+        if (result != null) return result;
+
+        long generation = cache.generation();
+        try (Connection conn = db.getConnection()) {
+            result = new PersonRepository(conn).findByNameExact(name);
+            cache.putIfGeneration(name, result, generation);
+            return result;
+        }
+    }
+
+    /** Like {@link PersonRepository#findByNamesExact} but only asks the database for names not in the cache. */
+    Map<String, Person> find(PersonRepository people, Collection<String> names) throws SQLException {
+        Map<String, Person> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Optional<Person> cached = cache.get(name);
+            if (cached == null) {
+                missing.add(name);
+            } else {
+                cached.ifPresent(p -> found.put(name, p));
+            }
+        }
+        if (missing.isEmpty()) return found;
+
+        long generation = cache.generation();
+        Map<String, Person> loaded = people.findByNamesExact(missing);
+        for (String name : missing) {
+            Person p = loaded.get(name);
+            cache.putIfGeneration(name, Optional.ofNullable(p), generation);
+            if (p != null) found.put(name, p);
+        }
+        return found;
+    }
+
+    void invalidate(String name) {
+        cache.invalidate(name);
+    }
+
+    void clear() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,10 @@
+package com.alexandra.nokia.service;
+
+/** No person has the given name (or nobody matches the given pattern). */
+public class PersonNotFoundException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public PersonNotFoundException(String message) {
+        super(message);
+    }
+}
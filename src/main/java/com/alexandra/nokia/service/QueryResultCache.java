@@ -0,0 +1,121 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.cli.ListQuery;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * LRU cache of listing results keyed by {@link ListQuery}.
+ * <p>
+ * Memory is bounded by the total number of cached rows, not entries, so a few big listings
+ * can't crowd out the heap; a single result above {@link #maxRowsPerEntry()} is never cached.
+ * Every entry remembers the catalog version it was read at and is dropped on lookup once
+ * the version has moved on, so writes only need to bump the version.
+ */
+public class QueryResultCache {
+    private final long maxRows;
+    private final LinkedHashMap<ListQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long rows;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    QueryResultCache(long maxRows) {
+        if (maxRows < 1) throw new IllegalArgumentException("Result cache size must be at least 1");
+        this.maxRows = maxRows;
+    }
+
+    int maxRowsPerEntry() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxRows / 4));
+    }
+
+    /** Where a listing's rows come from when the cache can't answer it. */
+    @FunctionalInterface
+    interface Source<T> {
+        void run(Consumer<T> sink) throws SQLException;
+    }
+
+    /**
+     * Replays a cached result for {@code q} if it is still current; otherwise streams from
+     * {@code source} and keeps a copy of the rows (up to the per-entry limit) for next time.
+     * Returns the number of rows delivered to {@code sink}.
+     */
+    @SuppressWarnings("unchecked")
+    <T> long forEach(ListQuery q, long currentVersion, Consumer<T> sink, Source<T> source) throws SQLException {
+        List<?> cached = get(q, currentVersion);
+        if (cached != null) {
+            for (Object row : cached) sink.accept((T) row);
+            return cached.size();
+        }
+
+        List<T> copy = new ArrayList<>();
+        int limit = maxRowsPerEntry();
+        boolean[] tooBig = {false};
+        long[] rows = {0};
+        source.run(row -> {
+            sink.accept(row);
+            rows[0]++;
+            if (tooBig[0]) return;
+            if (copy.size() < limit) {
+                copy.add(row);
+            } else {
+                tooBig[0] = true;
+                copy.clear();
+            }
+        });
+        if (!tooBig[0]) put(q, currentVersion, copy);
+        return rows[0];
+    }
+
+    synchronized List<?> get(ListQuery q, long currentVersion) {
+        Entry e = entries.get(q);
+        if (e != null && e.version != currentVersion) {
+            entries.remove(q);
+            rows -= e.rows.size();
+            invalidations++;
+            e = null;
+        }
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.rows;
+    }
+
+    synchronized void put(ListQuery q, long version, List<?> result) {
+        if (result.size() > maxRowsPerEntry()) return;
+
+        Entry old = entries.put(q, new Entry(version, List.copyOf(result)));
+        if (old != null) rows -= old.rows.size();
+        rows += result.size();
+
+        Iterator<Map.Entry<ListQuery, Entry>> it = entries.entrySet().iterator();
+        while (rows > maxRows && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            rows -= eldest.rows.size();
+            evictions++;
+        }
+    }
+
+    synchronized Stats stats() {
+        return new Stats(entries.size(), rows, maxRows, hits, misses, evictions, invalidations);
+    }
+
+    private record Entry(long version, List<?> rows) {}
+
+    public record Stats(int entries, long rows, long maxRows, long hits, long misses, long evictions, long invalidations) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
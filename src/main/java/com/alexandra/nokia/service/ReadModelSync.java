@@ -0,0 +1,82 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.metrics.Metrics;
+import com.alexandra.nokia.readmodel.MovieReadModel;
+import com.alexandra.nokia.repo.PersonRepository;
+
+import java.sql.SQLException;
+
+/**
+ * The optional {@link MovieReadModel} behind {@link MovieService} listings: loaded from one
+ * consistent snapshot, then kept in sync with the service's committed writes. A write it can't
+ * apply in place sends listings back to SQL until a background reload has caught up.
+ */
+final class ReadModelSync {
+    private final CatalogAccess db;
+    // in-memory copy that answers listings without JDBC (null = off)
+    private volatile MovieReadModel model;
+
+    ReadModelSync(CatalogAccess db, Metrics metrics) {
+        this.db = db;
+        metrics.gauge("readModel.movies", () -> {
+            MovieReadModel m = model;
+            return m == null ? 0 : m.memory().movies();
+        });
+        metrics.gauge("readModel.bytesPerMovie", () -> {
+            MovieReadModel m = model;
+            return m == null ? 0 : m.memory().bytesPerMovie();
+        });
+    }
+
+    void enable(MovieReadModel.ScanOptions scan) throws SQLException {
+        MovieReadModel fresh = new MovieReadModel(scan);
+        model = fresh;
+        load(fresh);
+    }
+
+    /** The model when it can answer listings; null while it is off, loading or stale. */
+    MovieReadModel loaded() {
+        MovieReadModel m = model;
+        return m != null && m.isLoaded() ? m : null;
+    }
+
+    /** After a bulk load: reads the tables again, if the model is on. */
+    void reload() throws SQLException {
+        MovieReadModel m = model;
+        if (m != null) load(m);
+    }
+
+    /** Reads people, movies and cast from one snapshot so every reference resolves. */
+    private void load(MovieReadModel m) throws SQLException {
+        db.inSnapshot(conn -> {
+            m.load(new PersonRepository(conn), db.movies(conn));
+            return null;
+        });
+    }
+
+    /**
+     * Applies a committed write to the model. When that can't be done in place, listings go
+     * back to SQL and the model is reloaded on a background thread (callers may still hold a
+     * pooled connection, so it is not reloaded here).
+     */
+    void sync(Change change) {
+        MovieReadModel m = model;
+        if (m == null || change.apply(m)) return;
+
+        m.markStale();
+        Thread t = new Thread(() -> {
+            try {
+                load(m);
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("- Read model reload failed: " + e.getMessage());
+            }
+        }, "read-model-reload");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @FunctionalInterface
+    interface Change {
+        boolean apply(MovieReadModel model);
+    }
+}
@@ -0,0 +1,10 @@
+package com.alexandra.nokia.service;
+
+/** A grouped add that was fine itself but was undone because another add of its atomic group failed. */
+public class RolledBackException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public RolledBackException() {
+        super("Rolled back with its group");
+    }
+}
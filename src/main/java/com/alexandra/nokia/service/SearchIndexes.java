@@ -0,0 +1,84 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.metrics.Metrics;
+import com.alexandra.nokia.repo.CandidateIds;
+import com.alexandra.nokia.repo.PersonRepository;
+import com.alexandra.nokia.search.TrigramIndex;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The {@link TrigramIndex}es over movie titles and people names that narrow regex filters to
+ * candidate ids before SQL runs. {@link MovieService} adds and removes entries as writes commit;
+ * while a rebuild is running every filter goes to SQL unnarrowed.
+ */
+final class SearchIndexes {
+    private final CatalogAccess db;
+    private final TrigramIndex titles = new TrigramIndex();
+    private final TrigramIndex names = new TrigramIndex();
+    private volatile boolean ready;
+    private final Metrics.Operation rebuildOp;
+
+    SearchIndexes(CatalogAccess db, Metrics metrics) {
+        this.db = db;
+        this.rebuildOp = metrics.operation("index.rebuild");
+        metrics.gauge("searchIndex.titles", titles::size);
+        metrics.gauge("searchIndex.names", names::size);
+    }
+
+    void rebuild() throws SQLException {
+        long start = rebuildOp.begin();
+        boolean ok = false;
+        ready = false;
+        titles.clear();
+        names.clear();
+        try (Connection conn = db.getConnection()) {
+            db.movies(conn).forEachTitle((title, id) -> titles.add(id, title));
+            new PersonRepository(conn).forEachName((name, id) -> names.add(id, name));
+            ok = true;
+        } finally {
+            rebuildOp.end(start, titles.size() + names.size(), ok);
+        }
+        ready = true;
+    }
+
+    CompletableFuture<Void> rebuildInBackground() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+            try {
+                rebuild();
+                done.complete(null);
+            } catch (SQLException | RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }, "search-index-rebuild");
+        t.setDaemon(true);
+        t.start();
+        return done;
+    }
+
+    void personAdded(long id, String name) {
+        names.add(id, name);
+    }
+
+    void personRemoved(long id) {
+        names.remove(id);
+    }
+
+    void movieAdded(long id, String title) {
+        titles.add(id, title);
+    }
+
+    /** Ids the filters of {@code q} can match; {@link CandidateIds#NONE} (no narrowing) until built. */
+    CandidateIds candidates(ListQuery q) {
+        if (!ready) return CandidateIds.NONE;
+        return new CandidateIds(
+                q.titleRegex() == null ? null : titles.search(q.titleRegex()),
+                q.directorRegex() == null ? null : names.search(q.directorRegex()),
+                q.actorRegex() == null ? null : names.search(q.actorRegex())
+        );
+    }
+}
@@ -0,0 +1,45 @@
+package com.alexandra.nokia.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the service's snapshot file every {@code intervalSeconds} and once more on close, so the
+ * next start can restore what was there at shutdown. Nothing is written while the catalog hasn't
+ * changed since the file was last written or restored.
+ */
+public class SnapshotScheduler implements AutoCloseable {
+    private final MovieService service;
+    private final ScheduledExecutorService timer;
+
+    public SnapshotScheduler(MovieService service, long intervalSeconds) {
+        if (intervalSeconds < 1) throw new IllegalArgumentException("Snapshot interval must be at least 1 second");
+        if (service.snapshotFile() == null) throw new IllegalStateException("No snapshot file configured");
+        this.service = service;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::writeQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void writeQuietly() {
+        try {
+            service.writeSnapshotIfChanged().ifPresent(r -> System.err.println("- Snapshot " + r.summary()));
+        } catch (IOException | SQLException | RuntimeException e) {
+            System.err.println("- Could not write snapshot to " + service.snapshotFile() + ": " + e.getMessage());
+        }
+    }
+
+    /** Idempotent: the shutdown hook may close it again after a normal exit. */
+    @Override
+    public void close() {
+        if (timer.isShutdown()) return;
+        timer.shutdownNow();
+        writeQuietly();
+    }
+}
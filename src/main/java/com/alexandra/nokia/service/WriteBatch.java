@@ -0,0 +1,128 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.metrics.Metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Catalog writes committed together in one transaction, each completing its own future.
+ * <p>
+ * Writes run in the order they were added. Normally each gets a savepoint, so a failing one
+ * (duplicate person, unknown director...) is rolled back and reported alone while the rest
+ * commits. An {@code atomic} batch instead rolls back everything at the first failure. Futures
+ * complete after the commit; {@code afterCommit} callbacks (caches, indexes) run just before.
+ */
+final class WriteBatch {
+    private final List<Pending<?>> pending = new ArrayList<>();
+
+    @FunctionalInterface
+    interface Work<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    <T> CompletableFuture<T> add(Work<T> work, Consumer<T> afterCommit) {
+        return add(new Pending<>(work, afterCommit));
+    }
+
+    <T> CompletableFuture<T> add(Pending<T> p) {
+        pending.add(p);
+        return p.done;
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Runs and commits the batch, then empties it. Returns false when nothing was committed
+     * (atomic batch with a failing write, or the transaction itself failed).
+     */
+    boolean execute(ConnectionPool pool, boolean atomic, Metrics.Operation op) {
+        long start = op.begin();
+        boolean ok = false;
+        List<Pending<?>> applied = new ArrayList<>(pending.size());
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Pending<?> p : pending) {
+                    Savepoint sp = atomic ? null : conn.setSavepoint();
+                    try {
+                        p.run(conn);
+                        applied.add(p);
+                    } catch (SQLException | RuntimeException e) {
+                        p.done.completeExceptionally(e);
+                        if (atomic) {
+                            conn.rollback();
+                            failAll(new RolledBackException());
+                            return false;
+                        }
+                        conn.rollback(sp);
+                    }
+                }
+                conn.commit();
+                ok = true;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            failAll(e);
+            return false;
+        } finally {
+            op.end(start, pending.size(), ok);
+            pending.clear();
+        }
+
+        for (Pending<?> p : applied) p.committed();
+        return true;
+    }
+
+    /** Drops the batch without running it; its writes fail with {@link RolledBackException}. */
+    void discard() {
+        failAll(new RolledBackException());
+        pending.clear();
+    }
+
+    /** Completes the writes that are still open; ones already failed keep their own error. */
+    private void failAll(Exception e) {
+        for (Pending<?> p : pending) p.done.completeExceptionally(e);
+    }
+
+    static final class Pending<T> {
+        final Work<T> work;
+        final Consumer<T> afterCommit;
+        final CompletableFuture<T> done = new CompletableFuture<>();
+        T result;
+
+        Pending(Work<T> work, Consumer<T> afterCommit) {
+            this.work = work;
+            this.afterCommit = afterCommit;
+        }
+
+        void run(Connection conn) throws SQLException {
+            result = work.run(conn);
+        }
+
+        void committed() {
+            try {
+                afterCommit.accept(result);
+                done.complete(result);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }
+    }
+}
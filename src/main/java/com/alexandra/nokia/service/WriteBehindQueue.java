@@ -0,0 +1,118 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.metrics.Metrics;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of catalog writes drained by one writer thread.
+ * <p>
+ * The writer takes what is queued (up to {@code maxBatch}, waiting at most {@code windowMillis}
+ * for more) and commits it as one {@link WriteBatch}: a failing write is rolled back and reported
+ * alone. Futures complete after the commit, i.e. once the write is as durable as the database
+ * makes it; {@code afterCommit} callbacks run on the writer thread. Writes are applied in
+ * submission order.
+ * <p>
+ * {@link #submit} blocks while the queue is full, which slows producers down to the writer's pace.
+ * Submitting and closing are ordered by {@code closing}: a write is either queued before
+ * {@link #close} starts (and committed by the writer) or rejected.
+ */
+final class WriteBehindQueue implements AutoCloseable {
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final ConnectionPool pool;
+    private final BlockingQueue<WriteBatch.Pending<?>> queue;
+    private final int maxBatch;
+    private final long windowNanos;
+    private final Metrics.Operation flushOp;
+    private final Thread writer;
+    // submitters share the read lock while they check and enqueue, close() takes the write lock
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    WriteBehindQueue(ConnectionPool pool, int capacity, int maxBatch, long windowMillis) {
+        if (capacity < 1) throw new IllegalArgumentException("Write queue capacity must be at least 1");
+        if (maxBatch < 1) throw new IllegalArgumentException("Write batch size must be at least 1");
+        if (windowMillis < 0) throw new IllegalArgumentException("Write window must not be negative");
+        this.pool = pool;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.flushOp = pool.metrics().operation("writeBehind.flush");
+        pool.metrics().gauge("writeBehind.queued", queue::size);
+
+        this.writer = new Thread(this::drain, "write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    <T> CompletableFuture<T> submit(WriteBatch.Work<T> work, Consumer<T> afterCommit) {
+        WriteBatch.Pending<T> p = new WriteBatch.Pending<>(work, afterCommit);
+        closing.readLock().lock();
+        try {
+            if (!running) throw new WriteQueueClosedException();
+            // the writer keeps draining until close() gets the write lock, so a full queue frees up
+            queue.put(p);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a write");
+        } finally {
+            closing.readLock().unlock();
+        }
+        return p.done;
+    }
+
+    /** Completes once everything submitted before this call is committed (or failed). */
+    CompletableFuture<Void> flush() {
+        return submit(conn -> null, ignored -> { });
+    }
+
+    /** Stops taking writes and waits for the queued ones to be committed. */
+    @Override
+    public void close() {
+        closing.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        WriteBatch batch = new WriteBatch();
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteBatch.Pending<?> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long wait = deadline - System.nanoTime();
+                    WriteBatch.Pending<?> next = wait <= 0 ? queue.poll() : queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // only close() stops the writer; keep draining
+            }
+            if (!batch.isEmpty()) batch.execute(pool, false, flushOp);
+        }
+        // nothing can be queued once running is false, but never leave a caller waiting forever
+        for (WriteBatch.Pending<?> left; (left = queue.poll()) != null; ) {
+            left.done.completeExceptionally(new WriteQueueClosedException());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.metrics.Metrics;
+import com.alexandra.nokia.model.Person;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Adds collected by the caller and committed together; see {@link MovieService#newWriteGroup}.
+ * In an {@code atomic} group the first failing add rolls back the whole group; otherwise only
+ * that add is skipped. Not thread-safe.
+ */
+public final class WriteGroup {
+    private final MovieService service;
+    private final ConnectionPool pool;
+    private final Metrics.Operation commitOp;
+    private final WriteBatch batch = new WriteBatch();
+    private final boolean atomic;
+
+    WriteGroup(MovieService service, ConnectionPool pool, Metrics.Operation commitOp, boolean atomic) {
+        this.service = service;
+        this.pool = pool;
+        this.commitOp = commitOp;
+        this.atomic = atomic;
+    }
+
+    /** Completes after {@link #commit()}, with the same outcome {@link MovieService#addPerson} would have. */
+    public CompletableFuture<Person> addPerson(String name, String nationality) {
+        return batch.add(service.personInsert(name, nationality), service::personAdded);
+    }
+
+    /** Completes after {@link #commit()}, with the same outcome {@link MovieService#addMovie} would have. */
+    public CompletableFuture<Void> addMovie(String title, int lengthSeconds, String directorName, List<String> actorNames) {
+        return batch.add(service.batchedMovie(title, lengthSeconds, directorName, actorNames), service::movieAdded)
+                .thenApply(added -> null);
+    }
+
+    public int size() {
+        return batch.size();
+    }
+
+    /**
+     * Commits the group (after anything still in the write-behind queue) and completes every
+     * future. Returns false when nothing was committed. The group can be reused afterwards.
+     */
+    public boolean commit() throws SQLException {
+        if (batch.isEmpty()) return true;
+        service.flushWrites();
+        return batch.execute(pool, atomic, commitOp);
+    }
+
+    /** Drops the collected adds; their futures fail with {@link RolledBackException}. */
+    public void discard() {
+        batch.discard();
+    }
+}
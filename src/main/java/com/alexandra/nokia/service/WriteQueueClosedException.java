@@ -0,0 +1,10 @@
+package com.alexandra.nokia.service;
+
+/** A write reached the write-behind queue after the service started closing. */
+public class WriteQueueClosedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public WriteQueueClosedException() {
+        super("Write queue is closed");
+    }
+}
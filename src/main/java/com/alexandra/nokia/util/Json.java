@@ -0,0 +1,30 @@
+package com.alexandra.nokia.util;
+
+/** Minimal JSON string escaping for the hand-written JSON outputs (no JSON library in this project). */
+public class Json {
+    public static StringBuilder appendString(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    public static String quote(String s) {
+        return appendString(new StringBuilder(s.length() + 2), s).toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.alexandra.nokia.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small thread-safe LRU map with hit/miss/eviction counters.
+ * <p>
+ * {@link #generation()} / {@link #putIfGeneration} let a caller that loaded a value from the
+ * database skip caching it when an invalidation happened in the meantime, so a slow reader
+ * can't put back an entry that a concurrent write just removed.
+ */
+public class LruCache<K, V> {
+    private final int maxEntries;
+    private final LinkedHashMap<K, V> map;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruCache(int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("Cache size must be at least 1");
+        this.maxEntries = maxEntries;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() <= LruCache.this.maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        V v = map.get(key);
+        if (v == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return v;
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /** Caches the value only if nothing was invalidated since {@code expectedGeneration} was read. */
+    public synchronized void putIfGeneration(K key, V value, long expectedGeneration) {
+        if (generation == expectedGeneration) map.put(key, value);
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        map.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(map.size(), maxEntries, hits, misses, evictions);
+    }
+
+    public record Stats(int size, int maxSize, long hits, long misses, long evictions) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
@@ -17,11 +17,37 @@ public class TimeUtil {
     }
 
     public static String formatSecondsToHhMmSs(int totalSeconds) {
+        return appendHhMmSs(new StringBuilder(8), totalSeconds).toString();
+    }
+
+    /**
+     * Appends {@code hh:mm:ss} (at least two digits each, like {@code %02d}) without going through
+     * {@code String.format}; listings call this once per row.
+     */
+    public static StringBuilder appendHhMmSs(StringBuilder out, int totalSeconds) {
+        return appendHhMmSs(out, (long) totalSeconds);
+    }
+
+    /** Same for totals that may not fit an int. */
+    public static StringBuilder appendHhMmSs(StringBuilder out, long totalSeconds) {
         if (totalSeconds < 0) totalSeconds = 0;
-        int hh = totalSeconds / 3600;
-        int rem = totalSeconds % 3600;
-        int mm = rem / 60;
-        int ss = rem % 60;
-        return String.format("%02d:%02d:%02d", hh, mm, ss);
+        long hh = totalSeconds / 3600;
+        int rem = (int) (totalSeconds % 3600);
+        if (hh < 10) out.append('0');
+        out.append(hh).append(':');
+        appendTwoDigits(out, rem / 60).append(':');
+        return appendTwoDigits(out, rem % 60);
+    }
+
+    /** A rough age for messages: "45 s", "12 min", "5 h" or "3 days". */
+    public static String formatAge(long seconds) {
+        if (seconds < 60) return Math.max(seconds, 0) + " s";
+        if (seconds < 3600) return seconds / 60 + " min";
+        if (seconds < 2 * 86400) return seconds / 3600 + " h";
+        return seconds / 86400 + " days";
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
     }
 }
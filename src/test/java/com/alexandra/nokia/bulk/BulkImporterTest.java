@@ -0,0 +1,106 @@
+package com.alexandra.nokia.bulk;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkImporterTest {
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = TestDatabases.newCatalog();
+        conn = pool.getConnection();
+        conn.setAutoCommit(false);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.setAutoCommit(true);
+        conn.close();
+        pool.close();
+    }
+
+    @Test
+    void overLongValuesAreRejectedRowsNotAFailedBatch() throws IOException, SQLException {
+        Path people = write("people.csv",
+                "name,nationality",
+                "Director,X",
+                "x".repeat(256) + ",X",
+                "Long Nationality," + "n".repeat(101),
+                "x".repeat(255) + "," + "n".repeat(100));
+        Path movies = write("movies.csv",
+                "Heat,01:00:00,Director",
+                "t".repeat(256) + ",01:00:00,Director",
+                "t".repeat(255) + ",01:00:00,Director");
+
+        BulkImporter importer = new BulkImporter(conn, ImportOptions.DEFAULT);
+        ImportReport p = importer.importPeople(people);
+        ImportReport m = importer.importMovies(movies);
+
+        assertEquals(4, p.rowsRead());
+        assertEquals(2, p.rowsWritten());
+        assertEquals(List.of("line 3: name is longer than 255 characters",
+                "line 4: nationality is longer than 100 characters"), p.rejectedSamples());
+        assertEquals(2, m.rowsWritten());
+        assertEquals(List.of("line 2: title is longer than 255 characters"), m.rejectedSamples());
+        assertEquals(List.of("Director", "x".repeat(255)), column("SELECT name FROM people ORDER BY name"));
+    }
+
+    @Test
+    void quotedWhitespaceSurvivesAnExportImportRoundTrip() throws IOException, SQLException {
+        List<String> names = List.of("  Leading", "Trailing ", "\tTab", "Plain", "With, comma", "Say \"hi\" ");
+        List<String> lines = new ArrayList<>();
+        for (String name : names) {
+            StringBuilder line = new StringBuilder();
+            DelimitedLine.appendField(line, name, ',');
+            line.append(',');
+            DelimitedLine.appendField(line, " X ", ',');
+            lines.add(line.toString());
+        }
+
+        ImportReport report = new BulkImporter(conn, ImportOptions.DEFAULT).importPeople(write("people.csv", lines.toArray(new String[0])));
+
+        assertEquals(names.size(), report.rowsWritten());
+        assertEquals(names.stream().sorted().toList(), column("SELECT name FROM people ORDER BY name"));
+        assertEquals(List.of(" X "), column("SELECT DISTINCT nationality FROM people"));
+    }
+
+    @Test
+    void onlyUnquotedWhitespaceIsTrimmed() {
+        assertEquals(List.of("a", "b c", ""), DelimitedLine.parse("  a , b c ,  ", ','));
+        assertEquals(List.of(" a ", "b", " c"), DelimitedLine.parse(" \" a \" ,b, \" c\"", ','));
+        assertEquals(List.of(" x y", "z"), DelimitedLine.parse("\" x\" y\tz", '\t'));
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(dir.resolve(name), List.of(lines));
+    }
+
+    private List<String> column(String sql) throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) out.add(rs.getString(1));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,47 @@
+package com.alexandra.nokia.bulk;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.service.MovieService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CatalogExporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void jsonLinesEscapeEveryStringField() throws IOException, SQLException {
+        try (ConnectionPool pool = TestDatabases.newCatalog(); MovieService service = new MovieService(pool)) {
+            service.addPerson("Dir \"The\" \\Boss", "X\tY");
+            service.addPerson("Actor", "Z");
+            service.addMovie("Line\nBreak", 3600, "Dir \"The\" \\Boss", List.of("Actor"));
+
+            try (Connection conn = pool.getConnection()) {
+                CatalogExporter exporter = new CatalogExporter(conn, 100);
+                exporter.exportPeople(dir, ExportFormat.JSON_LINES);
+                exporter.exportMovies(dir, ExportFormat.JSON_LINES);
+                exporter.exportCast(dir, ExportFormat.JSON_LINES);
+            }
+        }
+
+        assertEquals(List.of(
+                "{\"id\":1,\"name\":\"Dir \\\"The\\\" \\\\Boss\",\"nationality\":\"X\\tY\"}",
+                "{\"id\":2,\"name\":\"Actor\",\"nationality\":\"Z\"}"), Files.readAllLines(dir.resolve("people.jsonl")));
+        assertEquals(List.of(
+                "{\"id\":1,\"title\":\"Line\\nBreak\",\"lengthSeconds\":3600,\"directorId\":1,\"director\":\"Dir \\\"The\\\" \\\\Boss\"}"),
+                Files.readAllLines(dir.resolve("movies.jsonl")));
+        assertEquals(List.of(
+                "{\"movieId\":1,\"actorId\":2,\"title\":\"Line\\nBreak\",\"director\":\"Dir \\\"The\\\" \\\\Boss\",\"actor\":\"Actor\"}"),
+                Files.readAllLines(dir.resolve("cast.jsonl")));
+    }
+}
@@ -0,0 +1,133 @@
+package com.alexandra.nokia.bulk;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.service.MovieService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogSnapshotTest {
+    // small batches and commits, so a failing restore has already committed part of the file
+    private static final ImportOptions OPTIONS = new ImportOptions(2, 3);
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private List<List<String>> expected;
+
+    @BeforeEach
+    void writeSnapshot() throws IOException, SQLException {
+        file = dir.resolve("catalog.snap");
+        try (ConnectionPool pool = TestDatabases.newCatalog(); MovieService service = new MovieService(pool)) {
+            service.addPerson("Director", "X");
+            service.addPerson("Gone", "X");
+            service.addPerson("Actor é世", "Y");
+            service.addPerson("Other", "Z");
+            service.deletePersonByExactName("Gone");
+            for (int i = 0; i < 10; i++) {
+                service.addMovie("Movie " + i, 60 * i, "Director", i % 2 == 0 ? List.of("Actor é世", "Other") : List.of("Other"));
+            }
+
+            try (Connection conn = pool.getConnection()) {
+                SnapshotReport report = new CatalogSnapshot(conn, 4, OPTIONS).write(file);
+                assertEquals(List.of(3L, 10L, 15L), List.of(report.people(), report.movies(), report.castRows()));
+                expected = catalog(conn);
+            }
+        }
+    }
+
+    @Test
+    void restoreGivesBackTheSameRowsAndIds() throws IOException, SQLException {
+        try (ConnectionPool pool = TestDatabases.newCatalog(); Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            new CatalogSnapshot(conn, 4, OPTIONS).restore(file);
+            conn.setAutoCommit(true);
+
+            assertEquals(expected, catalog(conn));
+            // new rows continue after the restored ids (person 2 was deleted before the snapshot)
+            assertEquals(5, insertPerson(conn));
+        }
+    }
+
+    @Test
+    void corruptSnapshotLeavesTheCatalogEmpty() throws IOException, SQLException {
+        // first character of the first person's name: only the CRC at the end can notice
+        int nameOffset = 8 + 4 + 8 + 4 + 1 + 8 + 4;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(java.nio.ByteBuffer.wrap(new byte[]{'d'}), nameOffset);
+        }
+        assertRestoreFails();
+    }
+
+    @Test
+    void truncatedSnapshotLeavesTheCatalogEmpty() throws IOException, SQLException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 20);
+        }
+        assertRestoreFails();
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Files.writeString(file, "name,nationality\n");
+        assertThrows(IOException.class, () -> CatalogSnapshot.createdAt(file));
+    }
+
+    private void assertRestoreFails() throws SQLException {
+        try (ConnectionPool pool = TestDatabases.newCatalog(); Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            assertThrows(IOException.class, () -> new CatalogSnapshot(conn, 4, OPTIONS).restore(file));
+            conn.setAutoCommit(true);
+
+            assertEquals(List.of(List.of(), List.of(), List.of()), catalog(conn));
+            assertEquals(1, insertPerson(conn));
+        }
+    }
+
+    private static long insertPerson(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO people(name, nationality) VALUES ('New', 'N')", Statement.RETURN_GENERATED_KEYS);
+            try (ResultSet keys = st.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private static List<List<String>> catalog(Connection conn) throws SQLException {
+        return List.of(
+                rows(conn, "SELECT id, name, nationality FROM people ORDER BY id"),
+                rows(conn, "SELECT id, title, length_seconds, director_id FROM movies ORDER BY id"),
+                rows(conn, "SELECT movie_id, actor_id FROM movie_actors ORDER BY movie_id, actor_id"));
+    }
+
+    private static List<String> rows(Connection conn, String sql) throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columns; i++) row.append(i > 1 ? "|" : "").append(rs.getString(i));
+                out.add(row.toString());
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,92 @@
+package com.alexandra.nokia.cli;
+
+import com.alexandra.nokia.model.Movie;
+import com.alexandra.nokia.model.MovieWithActors;
+import com.alexandra.nokia.model.Person;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ListingPrinterTest {
+    private static final Person DIRECTOR = new Person(1, "Réalisatrice 世", "FR");
+
+    @Test
+    void plainListingIsByteForByteThePerLineOutput() {
+        List<Movie> movies = movies(2_000);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PrintStream baseline = stream(expected);
+        for (Movie m : movies) baseline.println(movieLine(m));
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        ListingPrinter printer = new ListingPrinter(stream(actual));
+        movies.forEach(printer::movie);
+        printer.flush();
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    void verboseListingIsByteForByteThePerLineOutput() {
+        List<MovieWithActors> rows = new ArrayList<>();
+        List<Movie> movies = movies(1_000);
+        for (int i = 0; i < movies.size(); i++) {
+            List<Person> cast = new ArrayList<>();
+            for (int a = 0; a < i % 4; a++) cast.add(new Person(10 + a, "Actor " + a + (a == 2 ? " \tÉ" : ""), "X"));
+            rows.add(new MovieWithActors(movies.get(i), cast));
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PrintStream baseline = stream(expected);
+        for (MovieWithActors row : rows) {
+            baseline.println(movieLine(row.movie()));
+            baseline.println("\tStarring:");
+            for (Person actor : row.actors()) baseline.println("\t\t- " + actor.name());
+        }
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        ListingPrinter printer = new ListingPrinter(stream(actual));
+        rows.forEach(printer::movieWithActors);
+        printer.flush();
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    void rowsAreHeldBackUntilFlush() {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        ListingPrinter printer = new ListingPrinter(stream(actual));
+        printer.movie(new Movie(1, "Heat", 10_000, DIRECTOR));
+        assertEquals(0, actual.size());
+
+        printer.flush();
+        assertEquals("Heat by Réalisatrice 世, 02:46:40" + System.lineSeparator(), actual.toString(StandardCharsets.UTF_8));
+    }
+
+    /** Lengths from 0 to past 100 hours, so every hh/mm/ss padding case shows up. */
+    private static List<Movie> movies(int count) {
+        List<Movie> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            out.add(new Movie(i, "Movie " + i, i * 397, DIRECTOR));
+        }
+        return out;
+    }
+
+    /** The line as the console built it before the printer: concatenation and String.format. */
+    private static String movieLine(Movie m) {
+        int s = m.lengthSeconds();
+        return m.title() + " by " + m.director().name() + ", "
+                + String.format("%02d:%02d:%02d", s / 3600, s % 3600 / 60, s % 60);
+    }
+
+    private static PrintStream stream(ByteArrayOutputStream bytes) {
+        return new PrintStream(bytes, true, StandardCharsets.UTF_8);
+    }
+}
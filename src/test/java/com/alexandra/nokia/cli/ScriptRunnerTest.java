@@ -0,0 +1,182 @@
+package com.alexandra.nokia.cli;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.service.MovieService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptRunnerTest {
+    private ConnectionPool pool;
+    private MovieService service;
+    private String output;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = TestDatabases.newCatalog();
+        service = new MovieService(pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        pool.close();
+    }
+
+    @Test
+    void stopsAtTheFirstFailingLine() throws IOException, SQLException {
+        ScriptRunner.Summary summary = run(false, 1, """
+                a -p "A" "X"
+                a -p "A" "X"
+                a -p "B" "X"
+                """);
+
+        assertEquals(List.of("A"), people());
+        assertEquals(2, summary.commands());
+        assertEquals(1, summary.failures());
+        assertTrue(summary.stopped());
+        assertFalse(summary.succeeded());
+        assertTrue(output.contains("- line 2: Person already exists: \"A\""), output);
+    }
+
+    @Test
+    void continueOnErrorSkipsFailingLines() throws IOException, SQLException {
+        ScriptRunner.Summary summary = run(true, 1, """
+                a -p "A" "X"
+                a -p "A" "X"
+                a -p "B" "X"
+                """);
+
+        assertEquals(List.of("A", "B"), people());
+        assertEquals(3, summary.commands());
+        assertEquals(1, summary.failures());
+        assertFalse(summary.stopped());
+        assertFalse(summary.succeeded(), "skipped lines still fail the run");
+    }
+
+    @Test
+    void aFailingAddRollsBackItsWholeGroup() throws IOException, SQLException {
+        ScriptRunner.Summary summary = run(false, 2, """
+                a -p "Director" "X"
+                a -p "Actor" "X"
+                a -p "Extra" "X"
+                a -m "Heat" 01:40:00 "Director" "Actor" "Nobody"
+                a -p "After" "X"
+                """);
+
+        // the first group committed, the second one is gone completely, the rest never ran
+        assertEquals(List.of("Actor", "Director"), people());
+        assertEquals(0, count("SELECT COUNT(*) FROM movies"));
+        assertTrue(summary.stopped());
+        assertEquals(4, summary.commands());
+        assertTrue(output.contains("- line 4: We could not find \"Nobody\""), output);
+        assertTrue(output.contains("- Lines 3-4 were rolled back"), output);
+    }
+
+    @Test
+    void withContinueOnErrorOnlyTheFailingAddOfAGroupIsLost() throws IOException, SQLException {
+        ScriptRunner.Summary summary = run(true, 2, """
+                a -p "Director" "X"
+                a -p "Actor" "X"
+                a -p "Extra" "X"
+                a -m "Heat" 01:40:00 "Director" "Actor" "Nobody"
+                a -p "After" "X"
+                """);
+
+        assertEquals(List.of("Actor", "After", "Director", "Extra"), people());
+        assertEquals(5, summary.commands());
+        assertEquals(1, summary.failures());
+        assertFalse(output.contains("rolled back"), output);
+    }
+
+    @Test
+    void errorsNameTheirLineCountingCommentsAndBlankLines() throws IOException, SQLException {
+        ScriptRunner.Summary summary = run(true, 10, """
+                # people first
+
+                a -p "A" "X"
+                a -x "A"
+                d -p "Nobody"
+                a -p "B"
+                l -ps 5
+                exit
+                a -p "C" "X"
+                """);
+
+        assertEquals(List.of("A"), people());
+        assertEquals(List.of(
+                "- line 4: Bad input format: unknown add switch",
+                "- line 5: Person not found",
+                "- line 6: Bad input format: use a -p \"Name\" \"Nationality\"",
+                "- line 7: Bad input format: -ps needs the interactive console"), lines("- line "));
+        assertEquals(5, summary.commands());
+        assertEquals(4, summary.failures());
+    }
+
+    @Test
+    void aCleanRunSucceeds() throws IOException, SQLException {
+        ScriptRunner.Summary summary = run(false, 2, """
+                a -p "Director" "X"
+                a -m "Heat" 01:40:00 "Director"
+                l
+                """);
+
+        assertEquals(3, summary.commands());
+        assertEquals(0, summary.failures());
+        assertFalse(summary.stopped());
+        assertTrue(summary.succeeded());
+        assertTrue(output.contains("Heat by Director, 01:40:00"), output);
+    }
+
+    private ScriptRunner.Summary run(boolean continueOnError, int groupSize, String script) throws IOException {
+        PrintStream console = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            return new ScriptRunner(service, continueOnError, groupSize).run(new BufferedReader(new StringReader(script)));
+        } finally {
+            System.setOut(console);
+            output = captured.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private List<String> lines(String prefix) {
+        return output.lines().filter(line -> line.startsWith(prefix)).toList();
+    }
+
+    private List<String> people() throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT name FROM people ORDER BY name");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.add(rs.getString(1));
+        }
+        return out;
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection(); PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
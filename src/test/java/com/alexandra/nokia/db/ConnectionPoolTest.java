@@ -0,0 +1,92 @@
+package com.alexandra.nokia.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void checkoutTimesOutWhileThePoolIsExhausted() throws SQLException {
+        pool = newPool(1, 100);
+        try (Connection held = pool.getConnection()) {
+            SQLTimeoutException e = assertThrows(SQLTimeoutException.class, pool::getConnection);
+            assertEquals("Timed out after 100 ms waiting for a database connection", e.getMessage());
+            assertEquals(1, pool.stats().timeouts());
+            assertEquals(1, pool.stats().active());
+        }
+        // the failed checkout didn't take a permit
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.isValid(1));
+        }
+    }
+
+    @Test
+    void aDirtyConnectionIsRolledBackAndResetWhenReturned() throws SQLException {
+        pool = newPool(1, 1_000);
+        Connection dirty = pool.getConnection();
+        dirty.setAutoCommit(false);
+        try (Statement st = dirty.createStatement()) {
+            st.executeUpdate("INSERT INTO people(name, nationality) VALUES ('Uncommitted', 'X')");
+        }
+        dirty.close();
+
+        // the same physical connection again (pool of one)
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.getAutoCommit());
+            assertEquals(0, countPeople(conn));
+        }
+        assertEquals(1, pool.stats().created());
+    }
+
+    @Test
+    void closingTwiceReturnsTheConnectionOnce() throws SQLException {
+        pool = newPool(2, 100);
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+
+        assertEquals(0, pool.stats().active());
+        assertEquals(1, pool.stats().idle());
+        assertTrue(conn.isClosed());
+        SQLException e = assertThrows(SQLException.class, conn::createStatement);
+        assertEquals("Connection was already returned to the pool", e.getMessage());
+
+        // two permits, not three: a third checkout still has to wait
+        try (Connection a = pool.getConnection(); Connection b = pool.getConnection()) {
+            assertNotSame(a, b);
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+        }
+    }
+
+    private static ConnectionPool newPool(int size, long timeoutMillis) throws SQLException {
+        ConnectionPool pool = TestDatabases.newDatabase().createPool(size, timeoutMillis, ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+        try (Connection conn = pool.getConnection()) {
+            Schema.init(conn);
+        }
+        return pool;
+    }
+
+    private static long countPeople(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM people")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
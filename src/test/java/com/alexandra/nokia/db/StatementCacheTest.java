@@ -0,0 +1,92 @@
+package com.alexandra.nokia.db;
+
+import com.alexandra.nokia.metrics.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementCacheTest {
+    private Connection raw;
+    private StatementCache.Counters counters;
+    private StatementCache cache;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        raw = TestDatabases.newDatabase().connect();
+        counters = new StatementCache.Counters();
+        cache = new StatementCache(raw, 1, counters, new Metrics());
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        cache.closeAll();
+        raw.close();
+    }
+
+    @Test
+    void evictionLeavesAStatementInUseOpenUntilItIsReturned() throws SQLException {
+        PreparedStatement first = cache.prepare("SELECT ?", Statement.NO_GENERATED_KEYS);
+        PreparedStatement underlying = first.unwrap(PreparedStatement.class);
+
+        // a cache of one: this evicts the first statement while it is still in use
+        try (PreparedStatement second = cache.prepare("SELECT 2", Statement.NO_GENERATED_KEYS)) {
+            assertEquals(2, single(second));
+        }
+        assertEquals(1, counters.evictions.get());
+        assertFalse(underlying.isClosed());
+        first.setInt(1, 1);
+        assertEquals(1, single(first));
+
+        first.close();
+        assertTrue(underlying.isClosed());
+        // gone from the cache: asking again prepares a new one
+        try (PreparedStatement again = cache.prepare("SELECT ?", Statement.NO_GENERATED_KEYS)) {
+            assertNotSame(underlying, again.unwrap(PreparedStatement.class));
+        }
+        assertEquals(0, counters.hits.get());
+    }
+
+    @Test
+    void nestedUseOfTheSameSqlGetsAnUncachedStatement() throws SQLException {
+        PreparedStatement outer = cache.prepare("SELECT ?", Statement.NO_GENERATED_KEYS);
+        PreparedStatement cached = outer.unwrap(PreparedStatement.class);
+        outer.setInt(1, 1);
+
+        PreparedStatement inner = cache.prepare("SELECT ?", Statement.NO_GENERATED_KEYS);
+        PreparedStatement uncached = inner.unwrap(PreparedStatement.class);
+        assertNotSame(cached, uncached);
+        inner.setInt(1, 2);
+        // each keeps its own parameters
+        assertEquals(2, single(inner));
+        assertEquals(1, single(outer));
+        assertEquals(2, counters.misses.get());
+
+        // the uncached one is really closed, the cached one goes back for reuse
+        inner.close();
+        assertTrue(uncached.isClosed());
+        outer.close();
+        assertFalse(cached.isClosed());
+        try (PreparedStatement reused = cache.prepare("SELECT ?", Statement.NO_GENERATED_KEYS)) {
+            assertEquals(cached, reused.unwrap(PreparedStatement.class));
+        }
+        assertEquals(1, counters.hits.get());
+    }
+
+    private static int single(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.alexandra.nokia.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Fresh in-memory catalogs for tests: every call gets its own H2 database with the schema. */
+public final class TestDatabases {
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private TestDatabases() {
+    }
+
+    public static Database newDatabase() {
+        return new Database("jdbc:h2:mem:test" + COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    public static ConnectionPool newCatalog() throws SQLException {
+        ConnectionPool pool = newDatabase().createPool(4, 5_000, ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+        try (Connection conn = pool.getConnection()) {
+            Schema.init(conn);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,109 @@
+package com.alexandra.nokia.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollaborationGraphTest {
+    private static final int PEOPLE = 400;
+
+    /** movie id -> director and cast, the same data the graph gets. */
+    private final Map<Long, Set<Long>> members = new HashMap<>();
+
+    @Test
+    void shortestPathsHaveTheLengthOfAPlainBfs() {
+        Random random = new Random(7);
+        CollaborationGraph graph = new CollaborationGraph();
+        for (long p = 1; p <= PEOPLE; p++) graph.putPerson(p);
+        // sparse enough to have long paths and people who are not connected at all
+        for (long m = 1; m <= 260; m++) {
+            long director = 1 + random.nextInt(PEOPLE - 40);
+            List<Long> actors = new ArrayList<>();
+            for (int i = random.nextInt(3); i >= 0; i--) actors.add(1L + random.nextInt(PEOPLE - 40));
+            assertTrue(graph.putMovie(m, director, actors));
+            members.computeIfAbsent(m, k -> new HashSet<>()).add(director);
+            members.get(m).addAll(actors);
+        }
+
+        int connected = 0;
+        for (int i = 0; i < 2_000; i++) {
+            long from = 1 + random.nextInt(PEOPLE);
+            long to = 1 + random.nextInt(PEOPLE);
+            int expected = plainBfs(from, to);
+            Optional<CollaborationGraph.Path> path = graph.shortestPath(from, to);
+
+            assertEquals(expected >= 0, path.isPresent(), from + " -> " + to);
+            if (path.isEmpty()) continue;
+            connected++;
+            assertEquals(expected, path.get().steps(), from + " -> " + to);
+            assertValid(path.get(), from, to);
+        }
+        assertTrue(connected > 500, "too few connected pairs to be a useful test: " + connected);
+    }
+
+    @Test
+    void removedPeopleNoLongerLinkAnything() {
+        CollaborationGraph graph = new CollaborationGraph();
+        for (long p = 1; p <= 4; p++) graph.putPerson(p);
+        graph.putMovie(10, 1, List.of(2L));
+        graph.putMovie(11, 2, List.of(3L));
+        graph.putMovie(12, 3, List.of(4L));
+
+        CollaborationGraph.Path path = graph.shortestPath(1, 4).orElseThrow();
+        assertEquals(List.of(1L, 2L, 3L, 4L), boxed(path.personIds()));
+        assertEquals(List.of(10L, 11L, 12L), boxed(path.movieIds()));
+        assertEquals(0, graph.shortestPath(3, 3).orElseThrow().steps());
+
+        graph.removePeople(List.of(3L));
+        assertFalse(graph.shortestPath(1, 4).isPresent());
+        assertFalse(graph.shortestPath(1, 99).isPresent());
+        assertEquals(new CollaborationGraph.Size(4, 3, 4), graph.size());
+        assertFalse(graph.putPerson(0), "ids below the known ones need a reload");
+    }
+
+    private int plainBfs(long from, long to) {
+        Map<Long, List<Long>> moviesOf = new HashMap<>();
+        members.forEach((movie, people) -> people.forEach(p -> moviesOf.computeIfAbsent(p, k -> new ArrayList<>()).add(movie)));
+
+        Map<Long, Integer> dist = new HashMap<>(Map.of(from, 0));
+        ArrayDeque<Long> queue = new ArrayDeque<>(List.of(from));
+        while (!queue.isEmpty()) {
+            long person = queue.poll();
+            if (person == to) return dist.get(person);
+            for (long movie : moviesOf.getOrDefault(person, List.of())) {
+                for (long next : members.get(movie)) {
+                    if (dist.putIfAbsent(next, dist.get(person) + 1) == null) queue.add(next);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void assertValid(CollaborationGraph.Path path, long from, long to) {
+        long[] people = path.personIds();
+        assertEquals(from, people[0]);
+        assertEquals(to, people[people.length - 1]);
+        for (int i = 0; i < path.steps(); i++) {
+            Set<Long> cast = members.get(path.movieIds()[i]);
+            assertTrue(cast.contains(people[i]) && cast.contains(people[i + 1]), "movie " + path.movieIds()[i] + " does not link them");
+        }
+    }
+
+    private static List<Long> boxed(long[] values) {
+        List<Long> out = new ArrayList<>();
+        for (long v : values) out.add(v);
+        return out;
+    }
+}
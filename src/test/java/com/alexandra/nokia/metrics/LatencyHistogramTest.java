@@ -0,0 +1,74 @@
+package com.alexandra.nokia.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndWithinSixPercent() {
+        for (long v = 0; v < 16; v++) {
+            assertEquals(v, LatencyHistogram.bucket(v));
+            assertEquals(v, LatencyHistogram.upperBound((int) v));
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long v = 16 + (random.nextLong() >>> random.nextInt(18, 63));
+            int b = LatencyHistogram.bucket(v);
+            long upper = LatencyHistogram.upperBound(b);
+            assertTrue(upper >= v && LatencyHistogram.upperBound(b - 1) < v, "value " + v + " outside bucket " + b);
+            assertTrue(upper - v <= v / 16, "value " + v + " reported as " + upper);
+        }
+
+        for (int b = 1; b < LatencyHistogram.BUCKETS; b++) {
+            assertEquals(b, LatencyHistogram.bucket(LatencyHistogram.upperBound(b - 1) + 1));
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void quantilesComeFromTheRecordedDistribution() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 1000; v++) h.record(v * 1_000);
+        h.record(-5);
+
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(1001, s.count());
+        assertEquals(500_500_000, s.totalNanos());
+        assertEquals(1_000_000, s.maxNanos());
+        assertEquals(1_000_000, s.valueAt(1.0));
+        assertEquals(0, s.valueAt(0.0));
+        assertWithin(500_000, s.valueAt(0.50));
+        assertWithin(990_000, s.valueAt(0.99));
+        assertEquals(0, new LatencyHistogram().snapshot().valueAt(0.5));
+    }
+
+    @Test
+    void concurrentRecordingLosesNothing() throws InterruptedException {
+        LatencyHistogram h = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long base = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) h.record(base * 1_000_000 + i);
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) t.join();
+
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(200_000, s.count());
+        assertEquals(3_000_000 + 49_999, s.maxNanos());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual - expected <= expected / 16, "expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,88 @@
+package com.alexandra.nokia.readmodel;
+
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.model.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieReadModelTest {
+    private static final int MOVIES = 12_000;
+
+    private static MovieReadModel model(MovieReadModel.ScanOptions scan) {
+        MovieReadModel model = new MovieReadModel(scan);
+        model.putPerson(1, "Director", "X");
+        model.putPerson(2, "Actor", "Y");
+        for (int i = 0; i < MOVIES; i++) {
+            // titles out of id order, lengths with ties
+            model.putMovie(i + 1, "Movie " + ((i * 7919) % MOVIES), 60 * (i % 50), 1, i % 3 == 0 ? List.of(2L) : List.of());
+        }
+        return model;
+    }
+
+    private static List<Movie> list(MovieReadModel model, ListQuery q) {
+        List<Movie> out = new ArrayList<>();
+        model.forEachMovie(q, out::add);
+        return out;
+    }
+
+    @Test
+    void batchedListingKeepsTheOrderAcrossBatches() {
+        MovieReadModel model = model(MovieReadModel.ScanOptions.SEQUENTIAL);
+
+        List<Movie> byTitle = list(model, new ListQuery(false, null, null, null, ListQuery.Ordering.TITLE_DEFAULT));
+        assertEquals(MOVIES, byTitle.size());
+        List<Movie> sorted = new ArrayList<>(byTitle);
+        sorted.sort(Comparator.comparing(Movie::title).thenComparing(Movie::id));
+        assertEquals(sorted, byTitle);
+
+        List<Movie> byLength = list(model, new ListQuery(false, null, null, null, ListQuery.Ordering.LENGTH_DESC));
+        assertEquals(MOVIES, byLength.size());
+        for (int i = 1; i < byLength.size(); i++) {
+            Movie a = byLength.get(i - 1);
+            Movie b = byLength.get(i);
+            assertTrue(a.lengthSeconds() > b.lengthSeconds()
+                    || a.lengthSeconds() == b.lengthSeconds() && a.title().compareTo(b.title()) < 0);
+        }
+
+        ListQuery topN = new ListQuery(false, null, null, null, ListQuery.Ordering.LENGTH_DESC).page(1500, null);
+        assertEquals(byLength.subList(0, 1500), list(model, topN));
+
+        ListQuery.After after = new ListQuery.After(byLength.get(99).lengthSeconds(), byLength.get(99).title(), byLength.get(99).id());
+        assertEquals(byLength.subList(100, 2100), list(model, topN.page(2000, after)));
+    }
+
+    @Test
+    void parallelFilterGivesTheSameRowsAsSequential() {
+        ListQuery q = new ListQuery(false, "Movie", null, "^Act", ListQuery.Ordering.LENGTH_ASC);
+        List<Movie> sequential = list(model(MovieReadModel.ScanOptions.SEQUENTIAL), q);
+        List<Movie> parallel = list(model(new MovieReadModel.ScanOptions(1, 0)), q);
+        assertTrue(sequential.size() > 1024, "needs more than one batch");
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void writesAreNotBlockedWhileTheSinkRuns() {
+        MovieReadModel model = model(MovieReadModel.ScanOptions.SEQUENTIAL);
+        boolean[] writeDone = {false};
+        model.forEachMovie(new ListQuery(false, null, null, null, ListQuery.Ordering.TITLE_DEFAULT), m -> {
+            if (writeDone[0]) return;
+            // a slow client: the write on another thread has to get through while we hold the row
+            CompletableFuture<Boolean> write = CompletableFuture.supplyAsync(
+                    () -> model.putMovie(MOVIES + 1, "Zzz", 60, 1, List.of()));
+            try {
+                writeDone[0] = write.get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new AssertionError("write blocked by a running listing", e);
+            }
+        });
+        assertTrue(writeDone[0]);
+    }
+}
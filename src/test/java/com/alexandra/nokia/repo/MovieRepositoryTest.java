@@ -0,0 +1,126 @@
+package com.alexandra.nokia.repo;
+
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.metrics.MetricsReport;
+import com.alexandra.nokia.model.Movie;
+import com.alexandra.nokia.model.MovieWithActors;
+import com.alexandra.nokia.model.Person;
+import com.alexandra.nokia.service.MovieService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieRepositoryTest {
+    private static final ListQuery VERBOSE = new ListQuery(true, null, null, null, ListQuery.Ordering.TITLE_DEFAULT);
+
+    private ConnectionPool pool;
+    private MovieService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = TestDatabases.newCatalog();
+        service = new MovieService(pool);
+        service.addPerson("Director", "X");
+        service.addPerson("Actor B", "Y");
+        service.addPerson("Actor A", "Z");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        pool.close();
+    }
+
+    @Test
+    void verboseListingRunsOneStatementWhateverTheResultSize() throws SQLException {
+        addMovies(0, 5);
+        long few = statementsFor(VERBOSE);
+        addMovies(5, 200);
+        long many = statementsFor(VERBOSE);
+
+        assertEquals(1, few);
+        assertEquals(few, many);
+    }
+
+    @Test
+    void verboseListingGroupsEachCastByName() throws SQLException {
+        service.addMovie("Alone", 60, "Director", List.of());
+        service.addMovie("Both", 90, "Director", List.of("Actor B", "Actor A"));
+
+        List<MovieWithActors> rows = list(VERBOSE);
+
+        assertEquals(List.of("Alone", "Both"), rows.stream().map(r -> r.movie().title()).toList());
+        assertEquals(List.of(), rows.get(0).actors());
+        assertEquals(List.of("Actor A", "Actor B"), rows.get(1).actors().stream().map(Person::name).toList());
+    }
+
+    @Test
+    void keysetPagesWalkTheWholeListingInEveryOrdering() throws SQLException {
+        // duplicate titles and lengths so ties have to be broken by title, then id
+        for (int i = 0; i < 40; i++) {
+            service.addMovie("Movie " + (i % 20), 60 * (i % 3), i < 20 ? "Director" : "Actor A", List.of("Actor B"));
+        }
+
+        for (ListQuery.Ordering ordering : ListQuery.Ordering.values()) {
+            for (boolean verbose : new boolean[]{false, true}) {
+                ListQuery q = new ListQuery(verbose, null, null, null, ordering);
+                List<Movie> all = movies(q);
+                assertEquals(40, all.size());
+
+                List<Movie> paged = new ArrayList<>();
+                ListQuery.After after = null;
+                for (List<Movie> page; !(page = movies(q.page(6, after))).isEmpty(); ) {
+                    paged.addAll(page);
+                    Movie last = page.get(page.size() - 1);
+                    after = new ListQuery.After(last.lengthSeconds(), last.title(), last.id());
+                }
+                assertEquals(all, paged, ordering + (verbose ? " verbose" : ""));
+            }
+        }
+
+        ListQuery longestWithB = new ListQuery(false, null, null, "^Actor B$", ListQuery.Ordering.LENGTH_DESC).page(3, null);
+        assertEquals(movies(new ListQuery(false, null, null, null, ListQuery.Ordering.LENGTH_DESC)).subList(0, 3),
+                movies(longestWithB));
+    }
+
+    private List<Movie> movies(ListQuery q) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            MovieRepository repo = new MovieRepository(conn);
+            if (!q.verbose()) return repo.listMovies(q);
+            return repo.listMoviesVerbose(q).stream().map(MovieWithActors::movie).toList();
+        }
+    }
+
+    private void addMovies(int from, int to) throws SQLException {
+        for (int i = from; i < to; i++) {
+            service.addMovie("Movie %03d".formatted(i), 60 + i, "Director", i % 2 == 0 ? List.of("Actor A", "Actor B") : List.of("Actor B"));
+        }
+    }
+
+    private List<MovieWithActors> list(ListQuery q) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return new MovieRepository(conn).listMoviesVerbose(q);
+        }
+    }
+
+    private long statementsFor(ListQuery q) throws SQLException {
+        long before = statementsRun();
+        List<MovieWithActors> rows = list(q);
+        long after = statementsRun();
+        assertEquals(rows.size(), rows.stream().map(r -> r.movie().id()).distinct().count());
+        return after - before;
+    }
+
+    private long statementsRun() {
+        return pool.metrics().report().statements().stream().mapToLong(MetricsReport.OperationStats::calls).sum();
+    }
+}
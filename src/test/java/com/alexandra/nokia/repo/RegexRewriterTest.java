@@ -0,0 +1,91 @@
+package com.alexandra.nokia.repo;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RegexRewriterTest {
+
+    private static void assertRewrite(RegexRewriter.Kind kind, String param, String regex) {
+        assertEquals(new RegexRewriter.Rewrite(kind, param), RegexRewriter.rewrite(regex), regex);
+    }
+
+    @Test
+    void plainTextBecomesEqualsOrLike() {
+        assertRewrite(RegexRewriter.Kind.EQUALS, "Die Hard", "^Die Hard$");
+        assertRewrite(RegexRewriter.Kind.LIKE, "Star%", "^Star");
+        assertRewrite(RegexRewriter.Kind.LIKE, "Star%", "^Star.*");
+        assertRewrite(RegexRewriter.Kind.LIKE, "%Spielberg%", "Spielberg");
+        assertRewrite(RegexRewriter.Kind.LIKE, "%Hard", "Hard$");
+    }
+
+    @Test
+    void escapedMetacharactersAreLiteralAndLikeWildcardsAreEscaped() {
+        assertRewrite(RegexRewriter.Kind.EQUALS, "1+1=2?", "^1\\+1=2\\?$");
+        assertRewrite(RegexRewriter.Kind.LIKE, "100\\%%", "^100%");
+        assertRewrite(RegexRewriter.Kind.LIKE, "%a\\_b%", "a_b");
+        assertRewrite(RegexRewriter.Kind.LIKE, "%C:\\\\%", "C:\\\\");
+        // an escaped "$" or ".*" at the end is text, not an anchor
+        assertRewrite(RegexRewriter.Kind.LIKE, "%costs $%", "costs \\$");
+    }
+
+    @Test
+    void realRegexesStayRegexes() {
+        for (String regex : new String[]{"^Star.*Wars", "A|B", "\\d+", "^[AB]", "x{2}", "^$", "^", "\\Qa.b\\E", "abc\\"}) {
+            assertRewrite(RegexRewriter.Kind.REGEX, regex, regex);
+        }
+        assertNull(RegexRewriter.parseLiteral(""));
+    }
+
+    @Test
+    void kindsWriteTheirPredicate() {
+        assertEquals("m.title = ?", RegexRewriter.Kind.EQUALS.sql("m.title"));
+        assertEquals("m.title LIKE ? ESCAPE '\\'", RegexRewriter.Kind.LIKE.sql("m.title"));
+        assertEquals("REGEXP_LIKE(m.title, ?)", RegexRewriter.Kind.REGEX.sql("m.title"));
+    }
+
+    @Test
+    void rewrittenFiltersMatchWhatTheRegexFinds() throws SQLException {
+        List<String> titles = List.of("Star Wars", "Lone Star", "Die Hard", "Die Hard 2", "100% Wolf",
+                "1000 Wolves", "a_b", "axb", "costs $5", "C:\\temp");
+        String[] regexes = {"^Star", "Star", "Star$", "^Die Hard$", "Hard", "^100%", "a_b", "costs \\$", "C:\\\\"};
+
+        try (ConnectionPool pool = TestDatabases.newCatalog(); Connection conn = pool.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE titles(title VARCHAR(255))");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO titles VALUES (?)")) {
+                for (String t : titles) {
+                    ps.setString(1, t);
+                    ps.executeUpdate();
+                }
+            }
+
+            for (String regex : regexes) {
+                RegexRewriter.Rewrite r = RegexRewriter.rewrite(regex);
+                List<String> expected = titles.stream().filter(Pattern.compile(regex).asPredicate()).toList();
+                List<String> actual = new ArrayList<>();
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT title FROM titles WHERE " + r.kind().sql("title") + " ORDER BY title")) {
+                    ps.setString(1, r.param());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) actual.add(rs.getString(1));
+                    }
+                }
+                assertEquals(expected.stream().sorted().toList(), actual, regex + " -> " + r);
+            }
+        }
+    }
+}
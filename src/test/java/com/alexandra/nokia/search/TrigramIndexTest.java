@@ -0,0 +1,76 @@
+package com.alexandra.nokia.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TrigramIndexTest {
+    private static final List<String> TITLES = List.of("Star Wars", "Star Trek", "Lone Star", "Die Hard",
+            "Die Hard 2", "Hardware", "The Starling", "Wars of the Worlds", "1+1", "C3PO and R2D2", "starry");
+
+    @Test
+    void literalsAreTheFragmentsEveryMatchContains() {
+        assertEquals(List.of("Star Wars"), TrigramIndex.requiredLiterals("^Star Wars$"));
+        assertEquals(List.of("Star", "Wars"), TrigramIndex.requiredLiterals("Star.*Wars"));
+        assertEquals(List.of("Har"), TrigramIndex.requiredLiterals("Hard?"));
+        assertEquals(List.of("Hard"), TrigramIndex.requiredLiterals("Hard+"));
+        assertEquals(List.of("Die", "Hard"), TrigramIndex.requiredLiterals("Die\\s+Hard"));
+        assertEquals(List.of("1+1=2"), TrigramIndex.requiredLiterals("1\\+1=2"));
+        assertEquals(List.of("Star"), TrigramIndex.requiredLiterals("Star(ling)?"));
+        assertEquals(List.of("Wor"), TrigramIndex.requiredLiterals("Worl{0,1}ds"));
+    }
+
+    @Test
+    void patternsWithoutUsableLiteralsAreLeftToSql() {
+        for (String regex : new String[]{".*", "Star|Trek", "(?i)star", "\\QStar\\E", "ab", "[A-Z]+", "\\w{3}"}) {
+            assertEquals(List.of(), TrigramIndex.requiredLiterals(regex), regex);
+        }
+        assertNull(index().search("(?i)star wars"));
+    }
+
+    @Test
+    void searchFindsExactlyWhatTheRegexFinds() {
+        TrigramIndex index = index();
+        for (String regex : new String[]{"Star", "^Star", "Star$", "Star.*s", "Hard\\b", "Die Hard( 2)?$",
+                "[Ss]tar", "1\\+1", "R2D2", "Wars?", "Ha(rd)+", "Nothing"}) {
+            long[] expected = LongStream.range(0, TITLES.size())
+                    .filter(i -> Pattern.compile(regex).matcher(TITLES.get((int) i)).find())
+                    .toArray();
+            long[] actual = index.search(regex);
+            if (actual != null) assertArrayEquals(expected, actual, regex);
+        }
+
+        index.remove(0);
+        index.add(6, "Starling City");
+        assertArrayEquals(new long[]{1, 2, 6}, index.search("Star"));
+        assertArrayEquals(new long[]{6}, index.search("ling"));
+    }
+
+    private static TrigramIndex index() {
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < TITLES.size(); i++) index.add(i, TITLES.get(i));
+        return index;
+    }
+
+    @Test
+    void nestedCharacterClassesAreSkippedAsAWhole() {
+        assertEquals(List.of("Wars"), TrigramIndex.requiredLiterals("[a-z&&[^x]]Wars"));
+        assertEquals(List.of("Wars"), TrigramIndex.requiredLiterals("[[abc]xyz]Wars"));
+        assertEquals(List.of("Star", "Wars"), TrigramIndex.requiredLiterals("Star[[ ]_]Wars"));
+        assertEquals(List.of("abc"), TrigramIndex.requiredLiterals("[]x]abc"));
+        assertEquals(List.of("abc"), TrigramIndex.requiredLiterals("[^]\\[]abc"));
+
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Star Wars");
+        index.add(2, "Star-Wars");
+        index.add(3, "Starz Wars");
+        assertArrayEquals(new long[]{1}, index.search("Star[[ ]_]Wars"));
+        assertArrayEquals(new long[]{1, 2}, index.search("Star[\\W&&[^_]]Wars"));
+    }
+}
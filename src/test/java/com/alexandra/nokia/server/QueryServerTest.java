@@ -0,0 +1,152 @@
+package com.alexandra.nokia.server;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.readmodel.MovieReadModel;
+import com.alexandra.nokia.service.MovieService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryServerTest {
+    // catastrophic backtracking on a long run of x without a y
+    private static final String SLOW_REGEX = "(.*x){25}y";
+    private static final String SLOW_TITLE = "x".repeat(40);
+
+    private ConnectionPool pool;
+    private MovieService service;
+    private QueryServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pool = TestDatabases.newCatalog();
+        service = new MovieService(pool);
+        service.addPerson("Director", "X");
+        service.enableReadModel(new MovieReadModel.ScanOptions(Integer.MAX_VALUE, 200));
+        server = new QueryServer(service, 0, 2, 4);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        service.close();
+        pool.close();
+    }
+
+    @Test
+    void listingIsStreamedAsJsonArray() throws Exception {
+        service.addMovie("Alpha", 3600, "Director", List.of());
+        service.addMovie("Beta", 60, "Director", List.of());
+
+        HttpResponse<String> r = get("/movies?q=" + URLEncoder.encode("-ld", StandardCharsets.UTF_8));
+        assertEquals(200, r.statusCode());
+        assertTrue(r.body().startsWith("[{\"id\":"), r.body());
+        assertTrue(r.body().indexOf("Alpha") < r.body().indexOf("Beta"), r.body());
+        assertTrue(r.body().endsWith("]\n"), r.body());
+    }
+
+    @Test
+    void timeoutBeforeTheFirstRowIs503() throws Exception {
+        service.addMovie(SLOW_TITLE, 60, "Director", List.of());
+
+        HttpResponse<String> r = get("/movies?q=" + URLEncoder.encode("-t \"" + SLOW_REGEX + "\"", StandardCharsets.UTF_8));
+        assertEquals(503, r.statusCode());
+        assertTrue(r.body().contains("\"error\":\"Query timed out"), r.body());
+    }
+
+    @Test
+    void timeoutAfterRowsEndsTheArrayWithAnError() throws Exception {
+        // more than one read-model batch of rows that sort first and match the first alternative
+        // at once, so rows are sent before the slow title is tested
+        for (int i = 0; i < 1100; i++) {
+            service.addMovie(String.format("Alpha %04d", i), 60, "Director", List.of());
+        }
+        service.addMovie(SLOW_TITLE, 60, "Director", List.of());
+
+        HttpResponse<String> r = get("/movies?q=" + URLEncoder.encode("-t \"^A|" + SLOW_REGEX + "\"", StandardCharsets.UTF_8));
+        assertEquals(200, r.statusCode());
+        assertTrue(r.body().startsWith("[{\"id\":"), r.body());
+        assertTrue(r.body().endsWith(",\n{\"error\":\"Query timed out after 200 ms\"}]\n"), r.body());
+    }
+
+    @Test
+    void timeoutInTheFirstBatchIs503() throws Exception {
+        // the read model finds a whole batch before sending any of it
+        service.addMovie("Alpha", 60, "Director", List.of());
+        service.addMovie(SLOW_TITLE, 60, "Director", List.of());
+
+        HttpResponse<String> r = get("/movies?q=" + URLEncoder.encode("-t \"^A|" + SLOW_REGEX + "\"", StandardCharsets.UTF_8));
+        assertEquals(503, r.statusCode());
+    }
+
+    @Test
+    void badSwitchesAre400() throws Exception {
+        HttpResponse<String> r = get("/movies?q=" + URLEncoder.encode("-zz", StandardCharsets.UTF_8));
+        assertEquals(400, r.statusCode());
+    }
+
+    @Test
+    void unknownPeopleAre404() throws Exception {
+        assertEquals(404, get("/people/filmography?name=Nobody").statusCode());
+        assertEquals(404, get("/stats/person?name=Nobody").statusCode());
+        assertEquals(404, get("/path?from=Director&to=Nobody").statusCode());
+
+        HttpResponse<String> r = send("DELETE", "/people?name=Nobody");
+        assertEquals(404, r.statusCode());
+        assertTrue(r.body().contains("\"error\":\"Person not found"), r.body());
+        assertEquals(404, send("DELETE", "/people?regex=" + URLEncoder.encode("^Nobody", StandardCharsets.UTF_8)).statusCode());
+    }
+
+    @Test
+    void deletingADirectorIs409() throws Exception {
+        service.addPerson("Actor", "Y");
+        service.addMovie("Alpha", 60, "Director", List.of("Actor"));
+
+        HttpResponse<String> r = send("DELETE", "/people?name=Director&name=Actor");
+        assertEquals(409, r.statusCode());
+        assertTrue(r.body().contains("direct at least one movie"), r.body());
+        assertEquals(200, send("DELETE", "/people?name=Actor").statusCode());
+    }
+
+    @Test
+    void badInputIsStill400() throws Exception {
+        assertEquals(400, send("POST", "/people?name=Director&nationality=X").statusCode());
+        assertEquals(400, send("POST", "/movies?title=T&length=01:00:00&director=Nobody").statusCode());
+        assertEquals(400, send("DELETE", "/people").statusCode());
+    }
+
+    @Test
+    void writesDuringShutdownAre503() throws Exception {
+        service.enableWriteBehind(16, 4, 0);
+        // the service closes (draining its queue) while the server still takes requests
+        service.close();
+
+        HttpResponse<String> r = send("POST", "/people?name=Late&nationality=X");
+        assertEquals(503, r.statusCode());
+        assertTrue(r.body().contains("Write queue is closed"), r.body());
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws Exception {
+        return send("GET", pathAndQuery);
+    }
+
+    private HttpResponse<String> send(String method, String pathAndQuery) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + pathAndQuery))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,123 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.repo.MovieRepository;
+import com.alexandra.nokia.repo.PersonRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** The totals a service keeps up to date must equal what a fresh {@link CatalogStats#load} reads. */
+class CatalogStatsTest {
+    private ConnectionPool pool;
+    private MovieService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = TestDatabases.newCatalog();
+        service = new MovieService(pool);
+        service.loadStats();
+        service.addPerson("Director A", "X");
+        service.addPerson("Director B", "X");
+        for (int i = 0; i < 6; i++) service.addPerson("Actor " + i, "Y");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        pool.close();
+    }
+
+    @Test
+    void directWritesKeepTheTotalsExact() throws SQLException {
+        service.addMovie("Heat", 100, "Director A", List.of("Actor 0", "Actor 1"));
+        service.addMovie("Ronin", 120, "Director A", List.of("Actor 1"));
+        service.addMovie("Alien", 90, "Director B", List.of());
+        assertMatchesTables();
+
+        // same title and director: a new length, and only Actor 2 is a new cast row
+        service.addMovie("Heat", 170, "Director A", List.of("Actor 1", "Actor 2", "Actor 0"));
+        // same title, other director: a different movie
+        service.addMovie("Heat", 95, "Director B", List.of("Actor 0"));
+        assertMatchesTables();
+
+        assertThrows(IllegalArgumentException.class, () -> service.addMovie("Solaris", 80, "Director B", List.of("Nobody")));
+        assertThrows(IllegalArgumentException.class, () -> service.addPerson("Actor 3", "Z"));
+        assertThrows(IllegalStateException.class, () -> service.deletePeopleByExactNames(List.of("Actor 3", "Director A")));
+        assertMatchesTables();
+
+        service.deletePeopleByExactNames(List.of("Actor 0", "Actor 5"));
+        service.deletePeopleMatching("^Actor 1$");
+        service.addPerson("Actor 0", "Y");
+        service.addMovie("Ronin", 120, "Director A", List.of("Actor 0"));
+        assertMatchesTables();
+    }
+
+    @Test
+    void writeBehindKeepsTheTotalsExact() throws SQLException {
+        service.enableWriteBehind(64, 4, 5);
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+        writes.add(service.addPersonAsync("Queued", "Z"));
+        writes.add(service.addMovieAsync("Heat", 100, "Director A", List.of("Actor 0", "Queued")));
+        writes.add(service.addMovieAsync("Heat", 140, "Director A", List.of("Queued", "Actor 2")));
+        // fail alone inside their batch
+        writes.add(service.addPersonAsync("Actor 1", "Z"));
+        writes.add(service.addMovieAsync("Alien", 90, "Director B", List.of("Nobody")));
+        writes.add(service.addMovieAsync("Alien", 90, "Director B", List.of("Actor 3")));
+        service.flushWrites();
+
+        assertEquals(2, writes.stream().filter(CompletableFuture::isCompletedExceptionally).count());
+        assertMatchesTables();
+    }
+
+    @Test
+    void writeGroupsKeepTheTotalsExact() throws SQLException {
+        WriteGroup lenient = service.newWriteGroup(false);
+        lenient.addMovie("Heat", 100, "Director A", List.of("Actor 0"));
+        lenient.addPerson("Actor 0", "Z");
+        lenient.addMovie("Heat", 130, "Director A", List.of("Actor 0", "Actor 1"));
+        lenient.commit();
+        assertMatchesTables();
+
+        WriteGroup atomic = service.newWriteGroup(true);
+        atomic.addPerson("Grouped", "Z");
+        atomic.addMovie("Alien", 90, "Director B", List.of("Grouped"));
+        atomic.addMovie("Heat", 10, "Director A", List.of("Nobody"));
+        assertFalse(atomic.commit());
+        assertMatchesTables();
+    }
+
+    private void assertMatchesTables() throws SQLException {
+        CatalogStats fresh = new CatalogStats();
+        List<Long> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            fresh.load(new PersonRepository(conn), new MovieRepository(conn));
+            try (PreparedStatement ps = conn.prepareStatement("SELECT id, name FROM people ORDER BY id");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                    names.add(rs.getString(2));
+                }
+            }
+        }
+
+        assertEquals(fresh.catalog(), service.catalogStats());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(fresh.person(ids.get(i)), service.personStats(names.get(i)), names.get(i));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.bulk.ImportOptions;
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.metrics.MetricsReport;
+import com.alexandra.nokia.model.MovieWithActors;
+import com.alexandra.nokia.model.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieServiceTest {
+    private static final ListQuery VERBOSE = new ListQuery(true, null, null, null, ListQuery.Ordering.TITLE_DEFAULT);
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private MovieService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = TestDatabases.newCatalog();
+        service = new MovieService(pool);
+        service.addPerson("Director", "X");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        pool.close();
+    }
+
+    @Test
+    void addMovieWithAnUnknownActorLeavesNothingBehind() throws SQLException {
+        service.addPerson("Actor", "Y");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.addMovie("Heat", 100, "Director", List.of("Actor", "Nobody")));
+        assertEquals("We could not find \"Nobody\"", e.getMessage());
+        assertEquals(List.of(), service.listMoviesVerbose(VERBOSE));
+    }
+
+    @Test
+    void sameTitleAndDirectorUpdatesTheMovieAndMergesTheCast() throws SQLException {
+        service.addPerson("Actor A", "Y");
+        service.addPerson("Actor B", "Y");
+
+        service.addMovie("Heat", 100, "Director", List.of("Actor A"));
+        service.addMovie("Heat", 170, "Director", List.of("Actor B", "Actor A"));
+
+        List<MovieWithActors> rows = service.listMoviesVerbose(VERBOSE);
+        assertEquals(1, rows.size());
+        assertEquals(170, rows.get(0).movie().lengthSeconds());
+        assertEquals(List.of("Actor A", "Actor B"), rows.get(0).actors().stream().map(Person::name).toList());
+    }
+
+    @Test
+    void addMovieStatementsDoNotGrowWithTheCast() throws SQLException {
+        List<String> cast = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            cast.add("Actor " + i);
+            service.addPerson("Actor " + i, "Y");
+        }
+
+        service.addMovie("Small", 60, "Director", cast.subList(0, 2));
+        long small = addMovieStatements();
+        service.addMovie("Large", 60, "Director", cast);
+        long large = addMovieStatements() - small;
+
+        // people lookup, existing-movie check, insert and one cast batch, however big the cast
+        assertTrue(small >= 3, "statements per add: " + small);
+        assertEquals(small, large);
+    }
+
+    @Test
+    void deletingADirectorAmongSeveralDeletesNobody() throws SQLException {
+        service.addPerson("Actor A", "Y");
+        service.addPerson("Actor B", "Y");
+        service.addMovie("Heat", 100, "Director", List.of("Actor A"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.deletePeopleByExactNames(List.of("Actor A", "Director", "Actor B")));
+        assertEquals("Cannot delete: 1 of them direct at least one movie: \"Director\"", e.getMessage());
+        assertEquals(3, count("SELECT COUNT(*) FROM people"));
+        assertEquals(1, count("SELECT COUNT(*) FROM movie_actors"));
+        assertEquals(3, service.catalogStats().people());
+    }
+
+    @Test
+    void oneUnknownNameAmongSeveralDeletesNobody() throws SQLException {
+        service.addPerson("Actor A", "Y");
+        service.addPerson("Actor B", "Y");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.deletePeopleByExactNames(List.of("Actor A", "Nobody", "Actor B")));
+        assertEquals("Person not found: \"Nobody\"", e.getMessage());
+        assertEquals(3, count("SELECT COUNT(*) FROM people"));
+        assertTrue(service.findPersonExact("Actor A").isPresent());
+    }
+
+    @Test
+    void regexDeletesEveryMatchOrNobody() throws SQLException {
+        service.addPerson("Actor A", "Y");
+        service.addPerson("Actor B", "Y");
+        service.addPerson("Extra", "Y");
+        service.addMovie("Heat", 100, "Director", List.of("Actor A", "Extra"));
+
+        assertThrows(IllegalStateException.class, () -> service.deletePeopleMatching("^(Actor|Dir)"));
+        assertEquals(4, count("SELECT COUNT(*) FROM people"));
+        assertThrows(IllegalStateException.class, () -> service.deletePeopleMatching("^Nobody"));
+        assertThrows(IllegalArgumentException.class, () -> service.deletePeopleMatching("(unclosed"));
+
+        assertEquals(2, service.deletePeopleMatching("^Actor"));
+        assertEquals(List.of("Director", "Extra"), names());
+        assertFalse(service.findPersonExact("Actor A").isPresent());
+    }
+
+    @Test
+    void deletedActorsLeaveNoCastRowsBehind() throws SQLException {
+        service.addPerson("Actor A", "Y");
+        service.addPerson("Actor B", "Y");
+        service.addMovie("Heat", 100, "Director", List.of("Actor A", "Actor B"));
+        service.addMovie("Ronin", 120, "Director", List.of("Actor A"));
+
+        assertEquals(1, service.deletePeopleByExactNames(List.of("Actor A")));
+        assertEquals(0, count("SELECT COUNT(*) FROM movie_actors WHERE actor_id NOT IN (SELECT id FROM people)"));
+        assertEquals(1, count("SELECT COUNT(*) FROM movie_actors"));
+        List<MovieWithActors> rows = service.listMoviesVerbose(VERBOSE);
+        assertEquals(List.of(List.of("Actor B"), List.of()),
+                rows.stream().map(r -> r.actors().stream().map(Person::name).toList()).toList());
+    }
+
+    @Test
+    void aPersonDeletedByAnotherTransactionIsNotDeletedTwice() throws Exception {
+        service.addPerson("Actor", "Y");
+        assertEquals(2, service.catalogStats().people());
+
+        try (Connection other = pool.getConnection()) {
+            other.setAutoCommit(false);
+            try (Statement st = other.createStatement()) {
+                st.executeUpdate("DELETE FROM people WHERE name = 'Actor'");
+            }
+            // the service sees the row until the other transaction commits, then deletes nothing
+            CompletableFuture<Integer> delete = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return service.deletePeopleByExactNames(List.of("Actor"));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(300);
+            other.commit();
+            other.setAutoCommit(true);
+
+            Throwable failure = assertThrows(Exception.class, delete::join).getCause();
+            assertEquals("Person not found", failure.getMessage());
+        }
+        // nothing was deleted by the service, so its totals stay where they were
+        assertEquals(2, service.catalogStats().people());
+    }
+
+    @Test
+    void aFailedRebuildAfterAFailedImportDoesNotHideTheImportError() throws IOException, SQLException {
+        Path people = Files.writeString(dir.resolve("people.csv"), "name,nationality\nA,X\n");
+        Path missing = dir.resolve("movies.csv");
+        // the search index rebuild after the import reads movie titles
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("ALTER TABLE movies RENAME TO movies_gone");
+        }
+
+        NoSuchFileException e = assertThrows(NoSuchFileException.class,
+                () -> service.importFiles(people, missing, null, ImportOptions.DEFAULT));
+        assertEquals(missing.toString(), e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+        assertTrue(e.getSuppressed()[0] instanceof SQLException, e.getSuppressed()[0].toString());
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection(); PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private List<String> names() throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (Connection conn = pool.getConnection(); PreparedStatement ps = conn.prepareStatement("SELECT name FROM people ORDER BY name");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.add(rs.getString(1));
+        }
+        return out;
+    }
+
+    private long addMovieStatements() {
+        return service.metrics().report().operations().stream()
+                .filter(op -> op.name().equals("movie.add"))
+                .mapToLong(MetricsReport.OperationStats::statements).sum();
+    }
+}
@@ -0,0 +1,139 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.bulk.ImportOptions;
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.model.Person;
+import com.alexandra.nokia.repo.PersonRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersonLookupTest {
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private MovieService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = TestDatabases.newCatalog();
+        service = new MovieService(pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        pool.close();
+    }
+
+    @Test
+    void aCachedMissIsForgottenWhenThePersonIsAdded() throws SQLException {
+        assertFalse(service.findPersonExact("Ann").isPresent());
+        Person added = service.addPerson("Ann", "X");
+        assertEquals(added, service.findPersonExact("Ann").orElseThrow());
+    }
+
+    @Test
+    void queuedAndGroupedAddsForgetCachedMissesToo() throws SQLException {
+        assertFalse(service.findPersonExact("Queued").isPresent());
+        assertFalse(service.findPersonExact("Grouped").isPresent());
+
+        WriteGroup group = service.newWriteGroup(true);
+        group.addPerson("Grouped", "X");
+        group.commit();
+        assertTrue(service.findPersonExact("Grouped").isPresent());
+
+        service.enableWriteBehind(16, 4, 0);
+        service.addPersonAsync("Queued", "X");
+        service.flushWrites();
+        assertTrue(service.findPersonExact("Queued").isPresent());
+    }
+
+    @Test
+    void deletedPeopleAreNotFoundAnyMore() throws SQLException {
+        service.addPerson("Ann", "X");
+        service.addPerson("Bob", "X");
+        assertTrue(service.findPersonExact("Ann").isPresent());
+        assertTrue(service.findPersonExact("Bob").isPresent());
+
+        service.deletePeopleByExactNames(List.of("Ann"));
+        service.deletePeopleMatching("^B");
+        assertFalse(service.findPersonExact("Ann").isPresent());
+        assertFalse(service.findPersonExact("Bob").isPresent());
+    }
+
+    @Test
+    void anImportClearsTheCache() throws IOException, SQLException {
+        assertFalse(service.findPersonExact("Imported").isPresent());
+        assertFalse(service.findPersonExact("Ann").isPresent());
+        // a row the service didn't write: the cached miss still answers
+        insertBehindTheServicesBack("Ann");
+        assertFalse(service.findPersonExact("Ann").isPresent());
+
+        Path people = Files.writeString(dir.resolve("people.csv"), "name,nationality\nImported,X\n");
+        service.importFiles(people, null, null, ImportOptions.DEFAULT);
+        assertTrue(service.findPersonExact("Imported").isPresent());
+        assertTrue(service.findPersonExact("Ann").isPresent());
+    }
+
+    @Test
+    void aLookupRacingAnInvalidationDoesNotCacheItsResult() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            PersonLookup lookup = new PersonLookup(new CatalogAccess(pool), 16, pool.metrics());
+            CountingPeople people = new CountingPeople(conn, () -> lookup.invalidate("Ann"));
+
+            // the name is added (and invalidated) while the lookup is reading
+            assertEquals(Map.of(), lookup.find(people, List.of("Ann")));
+            insertBehindTheServicesBack("Ann");
+            people.during = () -> {};
+            assertEquals("Ann", lookup.find(people, List.of("Ann")).get("Ann").name());
+            assertEquals(2, people.reads);
+
+            // without a race the result is cached
+            assertEquals("Ann", lookup.find(people, List.of("Ann")).get("Ann").name());
+            assertEquals(2, people.reads);
+        }
+    }
+
+    /** Runs {@code during} between reading the rows and returning them, like a write landing mid-lookup. */
+    private static final class CountingPeople extends PersonRepository {
+        Runnable during;
+        int reads;
+
+        CountingPeople(Connection conn, Runnable during) {
+            super(conn);
+            this.during = during;
+        }
+
+        @Override
+        public Map<String, Person> findByNamesExact(Collection<String> names) throws SQLException {
+            reads++;
+            Map<String, Person> found = super.findByNamesExact(names);
+            during.run();
+            return found;
+        }
+    }
+
+    private void insertBehindTheServicesBack(String name) throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO people(name, nationality) VALUES ('" + name + "', 'X')");
+        }
+    }
+}
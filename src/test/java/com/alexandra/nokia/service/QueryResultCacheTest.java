@@ -0,0 +1,142 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.bulk.ImportOptions;
+import com.alexandra.nokia.cli.ListQuery;
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.TestDatabases;
+import com.alexandra.nokia.model.Movie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** Cached listings must not outlive a write; each test renames a movie behind the service's back to see which listing it gets. */
+class QueryResultCacheTest {
+    private static final ListQuery ALL = new ListQuery(false, null, null, null, ListQuery.Ordering.TITLE_DEFAULT);
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private MovieService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = TestDatabases.newCatalog();
+        service = new MovieService(pool);
+        service.addPerson("Director", "X");
+        service.addPerson("Actor", "Y");
+        service.addMovie("Heat", 100, "Director", List.of("Actor"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        pool.close();
+    }
+
+    @Test
+    void aListingIsCachedUntilTheServiceWrites() throws SQLException {
+        assertEquals(List.of("Heat"), titles());
+        renameBehindTheServicesBack("Heat", "Stale");
+        assertEquals(List.of("Heat"), titles());
+
+        service.addMovie("Alien", 90, "Director", List.of());
+        assertEquals(List.of("Alien", "Stale"), titles());
+    }
+
+    @Test
+    void queuedAndGroupedWritesAreNotServedStale() throws SQLException {
+        assertEquals(List.of("Heat"), titles());
+        renameBehindTheServicesBack("Heat", "Stale");
+        WriteGroup group = service.newWriteGroup(true);
+        group.addMovie("Alien", 90, "Director", List.of());
+        group.commit();
+        assertEquals(List.of("Alien", "Stale"), titles());
+
+        renameBehindTheServicesBack("Stale", "Staler");
+        service.enableWriteBehind(16, 4, 0);
+        service.addPersonAsync("Queued", "X");
+        service.flushWrites();
+        assertEquals(List.of("Alien", "Staler"), titles());
+    }
+
+    @Test
+    void aDeleteIsNotServedStale() throws SQLException {
+        assertEquals(List.of("Heat"), titles());
+        renameBehindTheServicesBack("Heat", "Stale");
+
+        service.deletePersonByExactName("Actor");
+        assertEquals(List.of("Stale"), titles());
+    }
+
+    @Test
+    void anImportIsNotServedStale() throws IOException, SQLException {
+        assertEquals(List.of("Heat"), titles());
+        renameBehindTheServicesBack("Heat", "Stale");
+
+        Path people = Files.writeString(dir.resolve("people.csv"), "name,nationality\nImported,X\n");
+        service.importFiles(people, null, null, ImportOptions.DEFAULT);
+        assertEquals(List.of("Stale"), titles());
+    }
+
+    @Test
+    void aRestoredSnapshotIsNotServedStale() throws IOException, SQLException {
+        Path snapshot = dir.resolve("catalog.snap");
+        service.writeSnapshot(snapshot);
+
+        try (ConnectionPool emptyPool = TestDatabases.newCatalog(); MovieService empty = new MovieService(emptyPool)) {
+            assertEquals(List.of(), empty.listMovies(ALL).stream().map(Movie::title).toList());
+            empty.restoreSnapshot(snapshot, ImportOptions.DEFAULT);
+            assertEquals(List.of("Heat"), empty.listMovies(ALL).stream().map(Movie::title).toList());
+        }
+    }
+
+    @Test
+    void aListingReadDuringAWriteIsNotStoredUnderTheNewVersion() throws SQLException {
+        QueryResultCache cache = new QueryResultCache(100);
+        AtomicLong version = new AtomicLong();
+
+        List<String> rows = new ArrayList<>();
+        long before = version.get();
+        cache.<String>forEach(ALL, before, rows::add, sink -> {
+            sink.accept("Heat");
+            // a write commits while the rows are still streaming
+            version.incrementAndGet();
+            sink.accept("Alien");
+        });
+
+        assertEquals(List.of("Heat", "Alien"), rows);
+        assertNull(cache.get(ALL, version.get()));
+        assertEquals(1, cache.stats().invalidations());
+        assertEquals(0, cache.stats().rows());
+
+        // without a write in between the capture is served
+        cache.<String>forEach(ALL, version.get(), row -> {}, sink -> sink.accept("Heat"));
+        assertNotNull(cache.get(ALL, version.get()));
+    }
+
+    private List<String> titles() throws SQLException {
+        return service.listMovies(ALL).stream().map(Movie::title).toList();
+    }
+
+    private void renameBehindTheServicesBack(String from, String to) throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            assertEquals(1, st.executeUpdate("UPDATE movies SET title = '" + to + "' WHERE title = '" + from + "'"));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.alexandra.nokia.service;
+
+import com.alexandra.nokia.db.ConnectionPool;
+import com.alexandra.nokia.db.Database;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteBehindQueueTest {
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new Database("jdbc:h2:mem:writeBehindTest;DB_CLOSE_DELAY=-1").createPool(2, 5_000, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void submitAfterCloseIsRejected() {
+        WriteBehindQueue queue = new WriteBehindQueue(pool, 4, 4, 0);
+        queue.close();
+        assertThrows(IllegalStateException.class, () -> queue.submit(conn -> 1, r -> { }));
+    }
+
+    @Test
+    void everyAcceptedWriteCompletesWhenCloseRacesWithSubmitters() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            // capacity 1 keeps submitters blocked in put() while close() runs
+            WriteBehindQueue queue = new WriteBehindQueue(pool, 1, 1, 0);
+            List<CompletableFuture<Integer>> accepted = new CopyOnWriteArrayList<>();
+            AtomicInteger rejected = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(4);
+            Thread[] producers = new Thread[4];
+            for (int t = 0; t < producers.length; t++) {
+                producers[t] = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 50; i++) {
+                        try {
+                            accepted.add(queue.submit(conn -> 1, r -> { }));
+                        } catch (IllegalStateException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                });
+                producers[t].start();
+            }
+            started.await();
+            queue.close();
+            for (Thread p : producers) {
+                p.join(5_000);
+                assertFalse(p.isAlive(), "a submitter is stuck in put()");
+            }
+            for (CompletableFuture<Integer> f : accepted) {
+                assertEquals(1, f.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(200, accepted.size() + rejected.get());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.alexandra.nokia.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimeUtilTest {
+
+    @Test
+    void appendHhMmSsMatchesStringFormat() {
+        int[] values = {0, 1, 59, 60, 61, 3599, 3600, 3601, 35999, 36000, 86399, 99 * 3600 + 3599, 100 * 3600,
+                359_999, 360_000, 12_345_678, Integer.MAX_VALUE, -1, -3600, Integer.MIN_VALUE};
+        for (int v : values) {
+            assertEquals(formatted(v), TimeUtil.appendHhMmSs(new StringBuilder(), v).toString(), "seconds " + v);
+            assertEquals(formatted(v), TimeUtil.formatSecondsToHhMmSs(v), "seconds " + v);
+        }
+
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            int v = random.nextInt(1_000_000);
+            assertEquals(formatted(v), TimeUtil.appendHhMmSs(new StringBuilder(), v).toString(), "seconds " + v);
+        }
+    }
+
+    @Test
+    void longTotalsKeepEveryHourDigit() {
+        assertEquals("2562047788015215:30:07", TimeUtil.appendHhMmSs(new StringBuilder(), Long.MAX_VALUE).toString());
+        assertEquals("00:00:00", TimeUtil.appendHhMmSs(new StringBuilder(), Long.MIN_VALUE).toString());
+        assertEquals("x01:00:00", TimeUtil.appendHhMmSs(new StringBuilder("x"), 3600L).toString());
+    }
+
+    /** What the console printed before durations were appended by hand. */
+    private static String formatted(int totalSeconds) {
+        if (totalSeconds < 0) totalSeconds = 0;
+        int hh = totalSeconds / 3600;
+        int rem = totalSeconds % 3600;
+        return String.format("%02d:%02d:%02d", hh, rem / 60, rem % 60);
+    }
+}